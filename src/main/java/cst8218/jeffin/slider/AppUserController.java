@@ -1,12 +1,15 @@
 package cst8218.jeffin.slider;
 
 import cst8218.jeffin.slider.entity.AppUser;
+import cst8218.jeffin.slider.security.CachingIdentityStore;
+import cst8218.jeffin.slider.security.PasswordHashService;
+import cst8218.jeffin.slider.security.TokenService;
 import cst8218.jeffin.slider.util.JsfUtil;
 import cst8218.jeffin.slider.util.PaginationHelper;
 
 import java.io.Serializable;
 import java.util.ResourceBundle;
-import jakarta.annotation.Resource;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.component.UIComponent;
@@ -16,22 +19,25 @@ import jakarta.faces.convert.FacesConverter;
 import jakarta.faces.model.DataModel;
 import jakarta.faces.model.ListDataModel;
 import jakarta.faces.model.SelectItem;
-import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.PersistenceUnit;
-import jakarta.transaction.UserTransaction;
 
 @Named("appUserController")
 @SessionScoped
 public class AppUserController implements Serializable {
 
-    @Resource
-    private UserTransaction utx = null;
-    @PersistenceUnit(unitName = "my_persistence_unit")
-    private EntityManagerFactory emf = null;
+    // Keys of the values memoized for one request
+    private static final String ITEMS_KEY = "appUserController.items";
+    private static final String ALL_KEY = "appUserController.all";
+
+    @Inject
+    private AppUserJpaController jpaController;  // One persistence context per request
+    @Inject
+    private CachingIdentityStore identityStore;
+    @Inject
+    private TokenService tokenService;
+    @Inject
+    private PasswordHashService passwordHashService;
 
     private AppUser current;
-    private DataModel items = null;
-    private AppUserJpaController jpaController = null;
     private PaginationHelper pagination;
     private int selectedItemIndex;
 
@@ -47,9 +53,6 @@ public class AppUserController implements Serializable {
     }
 
     private AppUserJpaController getJpaController() {
-        if (jpaController == null) {
-            jpaController = new AppUserJpaController(utx, emf);
-        }
         return jpaController;
     }
 
@@ -90,7 +93,9 @@ public class AppUserController implements Serializable {
 
     public String create() {
         try {
+            passwordHashService.hashPassword(current);
             getJpaController().create(current);
+            recreateModel();
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("AppUserCreated"));
             return prepareCreate();
         } catch (Exception e) {
@@ -107,7 +112,17 @@ public class AppUserController implements Serializable {
 
     public String update() {
         try {
+            // The userid itself may be renamed, so note the stored one before it is overwritten
+            AppUser stored = getJpaController().findAppUser(current.getId());
+            passwordHashService.hashPassword(current);
             getJpaController().edit(current);
+            if (stored != null) {
+                identityStore.invalidate(stored.getUserid());
+                tokenService.revoke(stored.getUserid());
+            }
+            identityStore.invalidate(current.getUserid());
+            tokenService.revoke(current.getUserid());
+            recreateModel();
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("AppUserUpdated"));
             return "View";
         } catch (Exception e) {
@@ -141,6 +156,8 @@ public class AppUserController implements Serializable {
     private void performDestroy() {
         try {
             getJpaController().destroy(current.getId());
+            identityStore.invalidate(current.getUserid());
+            tokenService.revoke(current.getUserid());
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("AppUserDeleted"));
         } catch (Exception e) {
             JsfUtil.addErrorMessage(e, ResourceBundle.getBundle("/Bundle").getString("PersistenceErrorOccured"));
@@ -163,14 +180,13 @@ public class AppUserController implements Serializable {
     }
 
     public DataModel getItems() {
-        if (items == null) {
-            items = getPagination().createPageDataModel();
-        }
-        return items;
+        // Queried once per request however often EL reads it
+        return JsfUtil.memoize(ITEMS_KEY, () -> getPagination().createPageDataModel());
     }
 
     private void recreateModel() {
-        items = null;
+        // Drops the select items too, so nothing read earlier in this request outlives a change
+        JsfUtil.forget("appUserController.");
     }
 
     private void recreatePagination() {
@@ -190,11 +206,11 @@ public class AppUserController implements Serializable {
     }
 
     public SelectItem[] getItemsAvailableSelectMany() {
-        return JsfUtil.getSelectItems(getJpaController().findAppUserEntities(), false);
+        return JsfUtil.getSelectItems(ALL_KEY, () -> getJpaController().findAppUserEntities(), false);
     }
 
     public SelectItem[] getItemsAvailableSelectOne() {
-        return JsfUtil.getSelectItems(getJpaController().findAppUserEntities(), true);
+        return JsfUtil.getSelectItems(ALL_KEY, () -> getJpaController().findAppUserEntities(), true);
     }
 
     @FacesConverter(forClass = AppUser.class)
@@ -4,157 +4,116 @@
  */
 package cst8218.jeffin.slider;
 
+import cst8218.jeffin.slider.ejb.AbstractFacade;
 import cst8218.jeffin.slider.entity.AppUser;
 import cst8218.jeffin.slider.exceptions.NonexistentEntityException;
-import cst8218.jeffin.slider.exceptions.RollbackFailureException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
-import java.io.Serializable;
-import jakarta.persistence.Query;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
-import jakarta.transaction.UserTransaction;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
 import java.util.List;
 
 /**
+ * AppUser persistence for the JSF pages, on the request's EntityManager
+ * like {@link SliderJpaController}.
  *
  * @author Owner
  */
-public class AppUserJpaController implements Serializable {
+@RequestScoped
+public class AppUserJpaController {
 
-    public AppUserJpaController(UserTransaction utx, EntityManagerFactory emf) {
-        this.utx = utx;
-        this.emf = emf;
-    }
-    private UserTransaction utx = null;
-    private EntityManagerFactory emf = null;
+    @Inject
+    private EntityManager em;
+
+    private final AbstractFacade<AppUser> users = new AbstractFacade<AppUser>(AppUser.class) {
+        @Override
+        protected EntityManager getEntityManager() {
+            return em;
+        }
+
+        @Override
+        protected <R> TypedQuery<R> query(String name, String jpql, Class<R> resultType) {
+            // Writes commit before the page reads again, so there is never anything to flush first
+            return super.query(name, jpql, resultType).setFlushMode(FlushModeType.COMMIT);
+        }
+    };
 
-    public EntityManager getEntityManager() {
-        return emf.createEntityManager();
+    @Transactional(rollbackOn = Exception.class)
+    public void create(AppUser appUser) throws Exception {
+        em.joinTransaction();
+        em.persist(appUser);
+        em.flush();
     }
 
-    public void create(AppUser appUser) throws RollbackFailureException, Exception {
-        EntityManager em = null;
-        try {
-            utx.begin();
-            em = getEntityManager();
+    /**
+     * Inserts many users in one transaction.
+     *
+     * @param appUsers the users to insert
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void createAll(List<AppUser> appUsers) throws Exception {
+        em.joinTransaction();
+        for (AppUser appUser : appUsers) {
             em.persist(appUser);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
+        em.flush();
     }
 
-    public void edit(AppUser appUser) throws NonexistentEntityException, RollbackFailureException, Exception {
-        EntityManager em = null;
-        try {
-            utx.begin();
-            em = getEntityManager();
-            appUser = em.merge(appUser);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            String msg = ex.getLocalizedMessage();
-            if (msg == null || msg.length() == 0) {
-                Long id = appUser.getId();
-                if (findAppUser(id) == null) {
-                    throw new NonexistentEntityException("The appUser with id " + id + " no longer exists.");
-                }
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+    @Transactional(rollbackOn = Exception.class)
+    public void edit(AppUser appUser) throws NonexistentEntityException, Exception {
+        em.joinTransaction();
+        if (appUser.getId() == null || em.find(AppUser.class, appUser.getId()) == null) {
+            throw new NonexistentEntityException("The appUser with id " + appUser.getId() + " no longer exists.");
         }
+        em.merge(appUser);
+        em.flush();
     }
 
-    public void destroy(Long id) throws NonexistentEntityException, RollbackFailureException, Exception {
-        EntityManager em = null;
+    @Transactional(rollbackOn = Exception.class)
+    public void destroy(Long id) throws NonexistentEntityException, Exception {
+        em.joinTransaction();
+        AppUser appUser;
         try {
-            utx.begin();
-            em = getEntityManager();
-            AppUser appUser;
-            try {
-                appUser = em.getReference(AppUser.class, id);
-                appUser.getId();
-            } catch (EntityNotFoundException enfe) {
-                throw new NonexistentEntityException("The appUser with id " + id + " no longer exists.", enfe);
-            }
-            em.remove(appUser);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+            appUser = em.getReference(AppUser.class, id);
+            appUser.getId();
+        } catch (EntityNotFoundException enfe) {
+            throw new NonexistentEntityException("The appUser with id " + id + " no longer exists.", enfe);
         }
+        em.remove(appUser);
+        em.flush();
     }
 
     public List<AppUser> findAppUserEntities() {
-        return findAppUserEntities(true, -1, -1);
+        return users.findAll();
     }
 
     public List<AppUser> findAppUserEntities(int maxResults, int firstResult) {
-        return findAppUserEntities(false, maxResults, firstResult);
+        return users.findRange(new int[]{firstResult, firstResult + maxResults - 1});
     }
 
-    private List<AppUser> findAppUserEntities(boolean all, int maxResults, int firstResult) {
-        EntityManager em = getEntityManager();
-        try {
-            CriteriaQuery cq = em.getCriteriaBuilder().createQuery();
-            cq.select(cq.from(AppUser.class));
-            Query q = em.createQuery(cq);
-            if (!all) {
-                q.setMaxResults(maxResults);
-                q.setFirstResult(firstResult);
-            }
-            return q.getResultList();
-        } finally {
-            em.close();
-        }
+    public AppUser findAppUser(Long id) {
+        return users.find(id);
     }
 
-    public AppUser findAppUser(Long id) {
-        EntityManager em = getEntityManager();
-        try {
-            return em.find(AppUser.class, id);
-        } finally {
-            em.close();
-        }
+    /**
+     * Looks a user up by login name through a cached named query.
+     *
+     * @param userid the login name
+     * @return the user, or null if there is none
+     */
+    public AppUser findAppUserByUserid(String userid) {
+        List<AppUser> found = em.createNamedQuery("AppUser.findByUserid", AppUser.class)
+                .setParameter("userid", userid)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+        return found.isEmpty() ? null : found.get(0);
     }
 
     public int getAppUserCount() {
-        EntityManager em = getEntityManager();
-        try {
-            CriteriaQuery cq = em.getCriteriaBuilder().createQuery();
-            Root<AppUser> rt = cq.from(AppUser.class);
-            cq.select(em.getCriteriaBuilder().count(rt));
-            Query q = em.createQuery(cq);
-            return ((Long) q.getSingleResult()).intValue();
-        } finally {
-            em.close();
-        }
+        return users.count();
     }
-    
+
 }
@@ -1,25 +1,24 @@
 package cst8218.jeffin.slider;
 
+import cst8218.jeffin.slider.ejb.SliderCountService;
 import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderGame;
 import cst8218.jeffin.slider.util.JsfUtil;
-import cst8218.jeffin.slider.util.PaginationHelper;
+import cst8218.jeffin.slider.util.LazyDataModel;
 import jakarta.annotation.PostConstruct;
 
 import java.io.Serializable;
 import java.util.ResourceBundle;
-import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.convert.Converter;
 import jakarta.faces.convert.FacesConverter;
-import jakarta.faces.model.DataModel;
-import jakarta.faces.model.ListDataModel;
 import jakarta.faces.model.SelectItem;
-import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.PersistenceUnit;
-import jakarta.transaction.UserTransaction;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -37,17 +36,22 @@ import java.util.Locale;
 @SessionScoped
 public class SliderController implements Serializable {
 
+    // Keys of the values memoized for one request
+    private static final String ITEMS_KEY = "sliderController.items";
+    private static final String ALL_KEY = "sliderController.all";
+    private static final int LIST_PAGE_SIZE = 10;
+
     /**
-     * Injected resources for transaction management and entity manager factory
+     * Game whose in-memory slider state has to follow JSF edits
      */
-    @Resource
-    private UserTransaction utx = null;
-    
+    @EJB
+    private SliderGame sliderGame;
+
     /**
-     * Injected resources for transaction management and entity manager factory
+     * Maintained slider count, used instead of COUNT(*) when paging
      */
-    @PersistenceUnit(unitName = "my_persistence_unit")
-    private EntityManagerFactory emf = null;
+    @EJB
+    private SliderCountService sliderCount;
 
     /**
      * Current Slider entity being managed by the controller
@@ -55,22 +59,23 @@ public class SliderController implements Serializable {
     private Slider current;
     
     /**
-     * Current Slider entity being managed by the controller
+     * Request-scoped persistence for the pages: one persistence context per request
      */
-    private DataModel items = null;
+    @Inject
+    private SliderJpaController jpaController;
     
     /**
-     * Current Slider entity being managed by the controller
+     * Order and filter of the slider list
      */
-    private SliderJpaController jpaController = null;
-    
+    private final SliderListCriteria criteria = new SliderListCriteria();
+
     /**
-     * Current Slider entity being managed by the controller
+     * Slider list, one page loaded at a time in the order and filter of criteria
      */
-    private PaginationHelper pagination;
+    private LazyDataModel<Slider> listModel;
     
     /**
-     * Current Slider entity being managed by the controller
+     * Row of the selected slider within the current page of the list
      */
     private int selectedItemIndex;
 
@@ -141,33 +146,50 @@ public class SliderController implements Serializable {
      * @return the SliderJpaController instance
      */
     private SliderJpaController getJpaController() {
-        if (jpaController == null) {
-            jpaController = new SliderJpaController(utx, emf);
-        }
         return jpaController;
     }
 
     /**
-     * Retrieves the pagination helper used to manage the pagination of Slider entities.
+     * Retrieves the order and filter of the slider list, for the filter form.
+     *
+     * @return the list criteria
+     */
+    public SliderListCriteria getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Retrieves the number of sliders in the table, for the unfiltered list.
      *
-     * @return the PaginationHelper instance
+     * @return the slider count
      */
-    public PaginationHelper getPagination() {
-        if (pagination == null) {
-            pagination = new PaginationHelper(10) {
+    public int getItemsCount() {
+        // Maintained count; COUNT(*) would cost more the bigger the table gets
+        return sliderCount.getCount();
+    }
+
+    /**
+     * Returns the lazy data model of the slider list, creating it on first use.
+     *
+     * @return the LazyDataModel instance
+     */
+    private LazyDataModel<Slider> getListModel() {
+        if (listModel == null) {
+            // Sorting, filtering and paging all happen in the database, by key
+            listModel = new LazyDataModel<Slider>(LIST_PAGE_SIZE) {
 
                 @Override
-                public int getItemsCount() {
-                    return getJpaController().getSliderCount();
+                protected List<Slider> findPage(Object cursor, int limit) {
+                    return getJpaController().findSliderPage(criteria, (Object[]) cursor, limit);
                 }
 
                 @Override
-                public DataModel createPageDataModel() {
-                    return new ListDataModel(getJpaController().findSliderEntities(getPageSize(), getPageFirstItem()));
+                protected Object cursorOf(Slider slider) {
+                    return criteria.cursorOf(slider);
                 }
             };
         }
-        return pagination;
+        return listModel;
     }
 
     /**
@@ -186,8 +208,8 @@ public class SliderController implements Serializable {
      * @return the navigation outcome string for the view
      */
     public String prepareView() {
-        current = (Slider) getItems().getRowData();
-        selectedItemIndex = pagination.getPageFirstItem() + getItems().getRowIndex();
+        current = getItems().getRowData();
+        selectedItemIndex = getItems().getRowIndex();
         return "View";
     }
 
@@ -210,6 +232,9 @@ public class SliderController implements Serializable {
     public String create() {
         try {
             getJpaController().create(current);
+            sliderGame.sliderSaved(current);
+            sliderCount.sliderCreated();
+            recreateModel();
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("SliderCreated"));
             return prepareCreate();
         } catch (Exception e) {
@@ -224,8 +249,8 @@ public class SliderController implements Serializable {
      * @return the navigation outcome string for the edit view
      */
     public String prepareEdit() {
-        current = (Slider) getItems().getRowData();
-        selectedItemIndex = pagination.getPageFirstItem() + getItems().getRowIndex();
+        current = getItems().getRowData();
+        selectedItemIndex = getItems().getRowIndex();
         return "Edit";
     }
 
@@ -237,6 +262,8 @@ public class SliderController implements Serializable {
     public String update() {
         try {
             getJpaController().edit(current);
+            sliderGame.sliderSaved(current);
+            recreateModel();
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("SliderUpdated"));
             return "View";
         } catch (Exception e) {
@@ -251,10 +278,9 @@ public class SliderController implements Serializable {
      * @return the navigation outcome string for the list view after deletion
      */
     public String destroy() {
-        current = (Slider) getItems().getRowData();
-        selectedItemIndex = pagination.getPageFirstItem() + getItems().getRowIndex();
+        current = getItems().getRowData();
+        selectedItemIndex = getItems().getRowIndex();
         performDestroy();
-        recreatePagination();
         recreateModel();
         return "List";
     }
@@ -283,6 +309,8 @@ public class SliderController implements Serializable {
     private void performDestroy() {
         try {
             getJpaController().destroy(current.getId());
+            sliderGame.sliderRemoved(current.getId());
+            sliderCount.sliderRemoved();
             JsfUtil.addSuccessMessage(ResourceBundle.getBundle("/Bundle").getString("SliderDeleted"));
         } catch (Exception e) {
             JsfUtil.addErrorMessage(e, ResourceBundle.getBundle("/Bundle").getString("PersistenceErrorOccured"));
@@ -290,43 +318,44 @@ public class SliderController implements Serializable {
     }
 
     /**
-     * Updates the current Slider entity based on the selected index and pagination.
+     * Updates the current Slider entity to the one now at the selected row
+     * of the list, going back a page if the current one is now empty.
      */
     private void updateCurrentItem() {
-        int count = getJpaController().getSliderCount();
-        if (selectedItemIndex >= count) {
-            selectedItemIndex = count - 1;
-            if (pagination.getPageFirstItem() >= count) {
-                pagination.previousPage();
-            }
+        if (selectedItemIndex < 0) {
+            return;
         }
+        List<Slider> page = getItems().getPage();
+        if (page.isEmpty() && getItems().isHasPreviousPage()) {
+            getItems().previousPage();
+            page = getItems().getPage();
+        }
+        selectedItemIndex = Math.min(selectedItemIndex, page.size() - 1);
         if (selectedItemIndex >= 0) {
-            current = getJpaController().findSliderEntities(1, selectedItemIndex).get(0);
+            current = page.get(selectedItemIndex);
         }
     }
 
     /**
-     * Retrieves the data model for the current page of sliders.
+     * Retrieves the data model for the current page of sliders, with its
+     * paging state, e.g. #{sliderController.items.hasNextPage}.
      *
-     * @return the DataModel of sliders
-     */
-    public DataModel getItems() {
-        items = getPagination().createPageDataModel();
-        return items;
+     * @return the LazyDataModel of sliders
+     */
+    public LazyDataModel<Slider> getItems() {
+        // EL reads this many times per render; the page is queried at most once per request
+        return JsfUtil.memoize(ITEMS_KEY, () -> {
+            getListModel().refresh();
+            return getListModel();
+        });
     }
 
     /**
      * Helper method to recreate the data model for pagination.
      */
     private void recreateModel() {
-        items = null;
-    }
-
-    /**
-     * Helper method to recreate the pagination object.
-     */
-    private void recreatePagination() {
-        pagination = null;
+        // Drops the select items too, so nothing read earlier in this request outlives a change
+        JsfUtil.forget("sliderController.");
     }
 
     /**
@@ -335,7 +364,7 @@ public class SliderController implements Serializable {
      * @return the navigation outcome string for the list view
      */
     public String next() {
-        getPagination().nextPage();
+        getItems().nextPage();
         recreateModel();
         return "List";
     }
@@ -346,7 +375,57 @@ public class SliderController implements Serializable {
      * @return the navigation outcome string for the list view
      */
     public String previous() {
-        getPagination().previousPage();
+        getItems().previousPage();
+        recreateModel();
+        return "List";
+    }
+
+    /**
+     * Sorts the slider list by a column, or reverses the order if it is
+     * already sorted by it, and goes back to the first page.
+     *
+     * @param field one of SliderListCriteria.SORT_FIELDS
+     * @return the navigation outcome string for the list view
+     */
+    public String sortBy(String field) {
+        criteria.sortBy(field);
+        getListModel().reset();
+        recreateModel();
+        return "List";
+    }
+
+    /**
+     * Marks the column the list is sorted by, for its header.
+     *
+     * @param field a column of the list
+     * @return an arrow pointing the way the list is sorted, or an empty string
+     */
+    public String sortIndicator(String field) {
+        if (!field.equals(criteria.getSortField())) {
+            return "";
+        }
+        return criteria.isAscending() ? " \u25B2" : " \u25BC";
+    }
+
+    /**
+     * Shows the sliders in the ranges entered in the filter form, from the first page.
+     *
+     * @return the navigation outcome string for the list view
+     */
+    public String applyFilter() {
+        getListModel().reset();
+        recreateModel();
+        return "List";
+    }
+
+    /**
+     * Shows every slider again, from the first page.
+     *
+     * @return the navigation outcome string for the list view
+     */
+    public String clearFilter() {
+        criteria.clearFilter();
+        getListModel().reset();
         recreateModel();
         return "List";
     }
@@ -357,7 +436,7 @@ public class SliderController implements Serializable {
      * @return an array of SelectItem objects representing the available sliders
      */
     public SelectItem[] getItemsAvailableSelectMany() {
-        return JsfUtil.getSelectItems(getJpaController().findSliderEntities(), false);
+        return JsfUtil.getSelectItems(ALL_KEY, () -> getJpaController().findSliderEntities(), false);
     }
 
     /**
@@ -366,7 +445,7 @@ public class SliderController implements Serializable {
      * @return an array of SelectItem objects representing the available sliders
      */
     public SelectItem[] getItemsAvailableSelectOne() {
-        return JsfUtil.getSelectItems(getJpaController().findSliderEntities(), true);
+        return JsfUtil.getSelectItems(ALL_KEY, () -> getJpaController().findSliderEntities(), true);
     }
 
     /**
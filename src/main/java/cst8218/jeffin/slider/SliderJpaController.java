@@ -4,157 +4,143 @@
  */
 package cst8218.jeffin.slider;
 
+import cst8218.jeffin.slider.ejb.AbstractFacade;
 import cst8218.jeffin.slider.entity.Slider;
 import cst8218.jeffin.slider.exceptions.NonexistentEntityException;
-import cst8218.jeffin.slider.exceptions.RollbackFailureException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
-import java.io.Serializable;
-import jakarta.persistence.Query;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
-import jakarta.transaction.UserTransaction;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
 
 /**
+ * Slider persistence for the JSF pages.
+ *
+ * One instance per request, working on the request's EntityManager, so a
+ * page view uses a single persistence context however many lookups it
+ * makes. Reads go through the shared repository layer and never flush;
+ * writes run in a container transaction and roll back on any exception.
  *
  * @author leoje
  */
-public class SliderJpaController implements Serializable {
+@RequestScoped
+public class SliderJpaController {
 
-    public SliderJpaController(UserTransaction utx, EntityManagerFactory emf) {
-        this.utx = utx;
-        this.emf = emf;
-    }
-    private UserTransaction utx = null;
-    private EntityManagerFactory emf = null;
+    @Inject
+    private EntityManager em;
 
-    public EntityManager getEntityManager() {
-        return emf.createEntityManager();
+    private final SliderRepository sliders = new SliderRepository();
+
+    @Transactional(rollbackOn = Exception.class)
+    public void create(Slider slider) throws Exception {
+        em.joinTransaction();
+        em.persist(slider);
+        em.flush();
     }
 
-    public void create(Slider slider) throws RollbackFailureException, Exception {
-        EntityManager em = null;
-        try {
-            utx.begin();
-            em = getEntityManager();
+    /**
+     * Inserts many sliders in one transaction; with batch writing on they
+     * go to the database as JDBC batches.
+     *
+     * @param newSliders the sliders to insert
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void createAll(List<Slider> newSliders) throws Exception {
+        em.joinTransaction();
+        for (Slider slider : newSliders) {
             em.persist(slider);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
+        em.flush();
     }
 
-    public void edit(Slider slider) throws NonexistentEntityException, RollbackFailureException, Exception {
-        EntityManager em = null;
-        try {
-            utx.begin();
-            em = getEntityManager();
-            slider = em.merge(slider);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            String msg = ex.getLocalizedMessage();
-            if (msg == null || msg.length() == 0) {
-                Long id = slider.getId();
-                if (findSlider(id) == null) {
-                    throw new NonexistentEntityException("The slider with id " + id + " no longer exists.");
-                }
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+    @Transactional(rollbackOn = Exception.class)
+    public void edit(Slider slider) throws NonexistentEntityException, Exception {
+        em.joinTransaction();
+        // Apply the form to the current row rather than merging the copy the
+        // form was loaded from, so an edit made elsewhere since the form was
+        // shown does not make this one fail on the copy's older version
+        Slider managed = em.find(Slider.class, slider.getId());
+        if (managed == null) {
+            throw new NonexistentEntityException("The slider with id " + slider.getId() + " no longer exists.");
         }
+        managed.updateWithNonNullValues(slider);
+        em.flush();
+        slider.setVersion(managed.getVersion());
     }
 
-    public void destroy(Long id) throws NonexistentEntityException, RollbackFailureException, Exception {
-        EntityManager em = null;
+    @Transactional(rollbackOn = Exception.class)
+    public void destroy(Long id) throws NonexistentEntityException, Exception {
+        em.joinTransaction();
+        Slider slider;
         try {
-            utx.begin();
-            em = getEntityManager();
-            Slider slider;
-            try {
-                slider = em.getReference(Slider.class, id);
-                slider.getId();
-            } catch (EntityNotFoundException enfe) {
-                throw new NonexistentEntityException("The slider with id " + id + " no longer exists.", enfe);
-            }
-            em.remove(slider);
-            utx.commit();
-        } catch (Exception ex) {
-            try {
-                utx.rollback();
-            } catch (Exception re) {
-                throw new RollbackFailureException("An error occurred attempting to roll back the transaction.", re);
-            }
-            throw ex;
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+            slider = em.getReference(Slider.class, id);
+            slider.getId();
+        } catch (EntityNotFoundException enfe) {
+            throw new NonexistentEntityException("The slider with id " + id + " no longer exists.", enfe);
         }
+        em.remove(slider);
+        em.flush();
     }
 
     public List<Slider> findSliderEntities() {
-        return findSliderEntities(true, -1, -1);
+        return sliders.findAll();
     }
 
     public List<Slider> findSliderEntities(int maxResults, int firstResult) {
-        return findSliderEntities(false, maxResults, firstResult);
+        return sliders.findRange(new int[]{firstResult, firstResult + maxResults - 1});
     }
 
-    private List<Slider> findSliderEntities(boolean all, int maxResults, int firstResult) {
-        EntityManager em = getEntityManager();
-        try {
-            CriteriaQuery cq = em.getCriteriaBuilder().createQuery();
-            cq.select(cq.from(Slider.class));
-            Query q = em.createQuery(cq);
-            if (!all) {
-                q.setMaxResults(maxResults);
-                q.setFirstResult(firstResult);
-            }
-            return q.getResultList();
-        } finally {
-            em.close();
-        }
+    /**
+     * Keyset page of the slider list, sorted and filtered in the database.
+     * Each shape of criteria is registered as a named query once, and the
+     * sort column's (column, id) index serves both the order and the seek.
+     *
+     * @param criteria the order and filter of the list
+     * @param cursor what the page starts after, from criteria.cursorOf(), or null for the first page
+     * @param maxResults the page size
+     * @return the page
+     */
+    public List<Slider> findSliderPage(SliderListCriteria criteria, Object[] cursor, int maxResults) {
+        return sliders.findPage(criteria, cursor, maxResults);
     }
 
     public Slider findSlider(Long id) {
-        EntityManager em = getEntityManager();
-        try {
-            return em.find(Slider.class, id);
-        } finally {
-            em.close();
-        }
+        return sliders.find(id);
     }
 
     public int getSliderCount() {
-        EntityManager em = getEntityManager();
-        try {
-            CriteriaQuery cq = em.getCriteriaBuilder().createQuery();
-            Root<Slider> rt = cq.from(Slider.class);
-            cq.select(em.getCriteriaBuilder().count(rt));
-            Query q = em.createQuery(cq);
-            return ((Long) q.getSingleResult()).intValue();
-        } finally {
-            em.close();
+        return sliders.count();
+    }
+
+    private class SliderRepository extends AbstractFacade<Slider> {
+
+        SliderRepository() {
+            super(Slider.class);
+        }
+
+        @Override
+        protected EntityManager getEntityManager() {
+            return em;
+        }
+
+        @Override
+        protected <R> TypedQuery<R> query(String name, String jpql, Class<R> resultType) {
+            // Writes commit before the page reads again, so there is never anything to flush first
+            return super.query(name, jpql, resultType).setFlushMode(FlushModeType.COMMIT);
+        }
+
+        List<Slider> findPage(SliderListCriteria criteria, Object[] cursor, int limit) {
+            boolean seek = cursor != null;
+            TypedQuery<Slider> page = query(criteria.queryName(seek), criteria.jpql(seek), Slider.class);
+            for (Map.Entry<String, Object> parameter : criteria.parameters(cursor).entrySet()) {
+                page.setParameter(parameter.getKey(), parameter.getValue());
+            }
+            return page.setMaxResults(limit).getResultList();
         }
     }
-    
+
 }
@@ -0,0 +1,251 @@
+package cst8218.jeffin.slider;
+
+import cst8218.jeffin.slider.entity.Slider;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order and filter of the slider list, turned into a keyset query.
+ *
+ * Sliders are sorted by one column and then by id, so every row has a
+ * unique position and the next page can start right after the last row
+ * shown. The filter is an optional range on each sortable column. Only the
+ * columns listed in SORT_FIELDS ever reach the JPQL.
+ *
+ * @author leoje
+ */
+public class SliderListCriteria implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final List<String> SORT_FIELDS = Arrays.asList("id", "size", "x", "y", "maxTravel");
+
+    private String sortField = "id";
+    private boolean ascending = true;
+    private Integer minSize;
+    private Integer maxSize;
+    private Integer minX;
+    private Integer maxX;
+    private Integer minY;
+    private Integer maxY;
+    private Integer minMaxTravel;
+    private Integer maxMaxTravel;
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(String sortField) {
+        if (!SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("Cannot sort sliders by " + sortField);
+        }
+        this.sortField = sortField;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+
+    /**
+     * Sorts by a column, ascending, or reverses the order if it is already
+     * sorted by that column.
+     *
+     * @param field one of SORT_FIELDS
+     */
+    public void sortBy(String field) {
+        if (field.equals(sortField)) {
+            ascending = !ascending;
+        } else {
+            setSortField(field);
+            ascending = true;
+        }
+    }
+
+    public boolean isFiltered() {
+        for (Object[] range : ranges()) {
+            if (range[1] != null || range[2] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clearFilter() {
+        minSize = maxSize = minX = maxX = minY = maxY = minMaxTravel = maxMaxTravel = null;
+    }
+
+    /**
+     * @param slider a row of the list
+     * @return where the next page starts if that row ends this one
+     */
+    public Object[] cursorOf(Slider slider) {
+        Object value;
+        switch (sortField) {
+            case "size": value = slider.getSize(); break;
+            case "x": value = slider.getX(); break;
+            case "y": value = slider.getY(); break;
+            case "maxTravel": value = slider.getMaxTravel(); break;
+            default: value = slider.getId();
+        }
+        return new Object[]{value, slider.getId()};
+    }
+
+    /**
+     * @param seek true for a page after a cursor, false for the first page
+     * @return a name for the query, the same for every criteria that give
+     *         the same JPQL
+     */
+    public String queryName(boolean seek) {
+        StringBuilder name = new StringBuilder("page.").append(sortField).append(ascending ? ".asc." : ".desc.");
+        for (Object[] range : ranges()) {
+            name.append(range[1] != null ? '1' : '0').append(range[2] != null ? '1' : '0');
+        }
+        return seek ? name.append(".after").toString() : name.toString();
+    }
+
+    /**
+     * @param seek true for a page after a cursor, false for the first page
+     * @return the JPQL for one page, with a parameter for each bound
+     */
+    public String jpql(boolean seek) {
+        List<String> where = new ArrayList<>();
+        for (Object[] range : ranges()) {
+            String field = (String) range[0];
+            if (range[1] != null) {
+                where.add("s." + field + " >= :" + parameter("min", field));
+            }
+            if (range[2] != null) {
+                where.add("s." + field + " <= :" + parameter("max", field));
+            }
+        }
+        String after = ascending ? " > " : " < ";
+        if (seek && "id".equals(sortField)) {
+            where.add("s.id" + after + ":afterId");
+        } else if (seek) {
+            // The first comparison gives the index a start key; the second
+            // skips the rows at the cursor's value that were already shown
+            String from = ascending ? " >= " : " <= ";
+            where.add("s." + sortField + from + ":afterValue");
+            where.add("(s." + sortField + after + ":afterValue OR s.id" + after + ":afterId)");
+        }
+        StringBuilder jpql = new StringBuilder("SELECT s FROM Slider s");
+        if (!where.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        jpql.append(" ORDER BY ");
+        if (!"id".equals(sortField)) {
+            jpql.append("s.").append(sortField).append(direction).append(", ");
+        }
+        return jpql.append("s.id").append(direction).toString();
+    }
+
+    /**
+     * @param cursor the cursor the page starts after, or null for the first page
+     * @return the values for the parameters of jpql(cursor != null), by name
+     */
+    public Map<String, Object> parameters(Object[] cursor) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (Object[] range : ranges()) {
+            String field = (String) range[0];
+            if (range[1] != null) {
+                parameters.put(parameter("min", field), range[1]);
+            }
+            if (range[2] != null) {
+                parameters.put(parameter("max", field), range[2]);
+            }
+        }
+        if (cursor != null) {
+            if (!"id".equals(sortField)) {
+                parameters.put("afterValue", cursor[0]);
+            }
+            parameters.put("afterId", cursor[1]);
+        }
+        return parameters;
+    }
+
+    private Object[][] ranges() {
+        return new Object[][]{
+            {"size", minSize, maxSize},
+            {"x", minX, maxX},
+            {"y", minY, maxY},
+            {"maxTravel", minMaxTravel, maxMaxTravel}
+        };
+    }
+
+    private static String parameter(String bound, String field) {
+        return bound + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+    }
+
+    public Integer getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(Integer minSize) {
+        this.minSize = minSize;
+    }
+
+    public Integer getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Integer getMinX() {
+        return minX;
+    }
+
+    public void setMinX(Integer minX) {
+        this.minX = minX;
+    }
+
+    public Integer getMaxX() {
+        return maxX;
+    }
+
+    public void setMaxX(Integer maxX) {
+        this.maxX = maxX;
+    }
+
+    public Integer getMinY() {
+        return minY;
+    }
+
+    public void setMinY(Integer minY) {
+        this.minY = minY;
+    }
+
+    public Integer getMaxY() {
+        return maxY;
+    }
+
+    public void setMaxY(Integer maxY) {
+        this.maxY = maxY;
+    }
+
+    public Integer getMinMaxTravel() {
+        return minMaxTravel;
+    }
+
+    public void setMinMaxTravel(Integer minMaxTravel) {
+        this.minMaxTravel = minMaxTravel;
+    }
+
+    public Integer getMaxMaxTravel() {
+        return maxMaxTravel;
+    }
+
+    public void setMaxMaxTravel(Integer maxMaxTravel) {
+        this.maxMaxTravel = maxMaxTravel;
+    }
+}
@@ -9,6 +9,8 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Swing client that allows updating a slider's size and position via the REST API.
@@ -17,6 +19,13 @@ public class SliderSwingClient {
 
     private static final String API_BASE = "http://localhost:8080/A2/resources/slider";
     private static final HttpClient CLIENT = HttpClient.newHttpClient();
+    private static volatile String listETag; // ETag of the last slider list fetched, sent back as If-None-Match
+    private static final String TOKEN_URL = "http://localhost:8080/A2/resources/auth/token";
+    private static final Pattern TOKEN_FIELD = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern EXPIRES_FIELD = Pattern.compile("\"expiresIn\"\\s*:\\s*(\\d+)");
+    private static String basicHeader; // Sent only to get a token, or if the server hands none out
+    private static String bearerHeader;
+    private static long bearerExpiresAt;
     
     // Validation constants (matching Slider entity constraints)
     private static final int MIN_SIZE = 1;
@@ -110,6 +119,37 @@ public class SliderSwingClient {
         }
     }
 
+    /**
+     * Returns the Authorization header for the next call: a bearer token,
+     * fetched with the Basic credentials once and again shortly before it
+     * expires, so the server does not hash the password on every call.
+     */
+    private static synchronized String authorization() {
+        if (bearerHeader != null && System.currentTimeMillis() < bearerExpiresAt) {
+            return bearerHeader;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(TOKEN_URL))
+                    .header("Accept", "application/json")
+                    .header("Authorization", basicHeader)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            Matcher token = TOKEN_FIELD.matcher(response.body());
+            Matcher expires = EXPIRES_FIELD.matcher(response.body());
+            if (response.statusCode() == 200 && token.find() && expires.find()) {
+                bearerHeader = "Bearer " + token.group(1);
+                // Renew a little early so a token never expires in flight
+                bearerExpiresAt = System.currentTimeMillis() + Math.max(0, Long.parseLong(expires.group(1)) - 30) * 1000;
+                return bearerHeader;
+            }
+        } catch (Exception e) {
+            // Fall back to Basic below; the call itself will report any problem
+        }
+        return basicHeader;
+    }
+
     private static void createAndShow() {
         JFrame frame = new JFrame("Slider Client");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -118,7 +158,7 @@ public class SliderSwingClient {
         // Prompt for login once
         String username = JOptionPane.showInputDialog("Enter username:");
         String password = JOptionPane.showInputDialog("Enter password:");
-        String authHeader = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
+        basicHeader = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
 
         JTextField idField = new JTextField("1", 5);
         JTextField sizeField = new JTextField("50", 5);
@@ -150,16 +190,24 @@ public class SliderSwingClient {
         // Test connection button
         testConnection.addActionListener((ActionEvent e) -> {
             statusField.setText("Testing API connection...");
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
                     .uri(URI.create(API_BASE))
                     .header("Accept", "application/json")
-                    .GET()
-                    .build();
+                    .header("Authorization", authorization())
+                    .GET();
+            if (listETag != null) {
+                // Let the server answer 304 instead of resending an unchanged list
+                builder.header("If-None-Match", listETag);
+            }
+            HttpRequest request = builder.build();
 
             CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
                     .thenAccept(resp -> {
                         String responseMessage = "API Test - Status: " + resp.statusCode();
-                        if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
+                        resp.headers().firstValue("ETag").ifPresent(tag -> listETag = tag);
+                        if (resp.statusCode() == 304) {
+                            responseMessage += " - API is accessible, sliders unchanged.";
+                        } else if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
                             responseMessage += " - API is accessible!";
                         } else {
                             responseMessage += " - API Error: " + (resp.body() != null ? resp.body().substring(0, Math.min(100, resp.body().length())) + "..." : "Unknown error");
@@ -227,7 +275,7 @@ public class SliderSwingClient {
                         .uri(URI.create(API_BASE + "/" + id))
                         .header("Content-Type", "application/json")
                         .header("Accept", "application/json")
-                        .header("Authorization", authHeader)
+                        .header("Authorization", authorization())
                         .PUT(HttpRequest.BodyPublishers.ofString(json))
                         .build();
 
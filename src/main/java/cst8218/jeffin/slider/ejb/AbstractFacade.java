@@ -11,22 +11,43 @@
  */
 package cst8218.jeffin.slider.ejb;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import cst8218.jeffin.slider.util.CacheStatistics;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
+import jakarta.persistence.TypedQuery;
 
 /**
+ * Typed data access shared by every facade.
+ *
+ * Each query is written once as JPQL and registered with the persistence
+ * unit as a named query the first time it runs, so the provider parses and
+ * prepares it once instead of on every call. Entities are expected to have
+ * a Long id and to be named after their class. Lists come back in id order,
+ * and findRange() takes an inclusive range of positions.
  *
  * @author ian
  */
 public abstract class AbstractFacade<T> {
-    private Class<T> entityClass;
+
+    private static final int IN_CHUNK_SIZE = 1000;  // Ids per IN list
+    private static final Set<String> REGISTERED = ConcurrentHashMap.newKeySet();  // Named queries added to the unit
+
+    private final Class<T> entityClass;
+    private final String entityName;
 
     public AbstractFacade(Class<T> entityClass) {
         this.entityClass = entityClass;
+        this.entityName = entityClass.getSimpleName();
     }
 
     protected abstract EntityManager getEntityManager();
@@ -44,30 +65,131 @@ public abstract class AbstractFacade<T> {
     }
 
     public T find(Object id) {
-        return getEntityManager().find(entityClass, id);
+        return CacheStatistics.find(getEntityManager(), entityClass, id);
     }
 
     public List<T> findAll() {
-        CriteriaQuery cq = getEntityManager().getCriteriaBuilder().createQuery();
-        cq.select(cq.from(entityClass));
-        return getEntityManager().createQuery(cq).getResultList();
+        return query("findAll", "SELECT e FROM " + entityName + " e ORDER BY e.id", entityClass)
+                .getResultList();
     }
 
+    /**
+     * Entities at positions range[0] to range[1], both included, in id order.
+     *
+     * @param range the first and last position, counting from 0
+     * @return the entities in that range
+     */
     public List<T> findRange(int[] range) {
-        CriteriaQuery cq = getEntityManager().getCriteriaBuilder().createQuery();
-        cq.select(cq.from(entityClass));
-        Query q = getEntityManager().createQuery(cq);
-        q.setMaxResults(range[1] - range[0]);
-        q.setFirstResult(range[0]);
-        return q.getResultList();
+        int first = Math.max(0, range[0]);
+        if (range[1] < first) {
+            return new ArrayList<>();
+        }
+        return query("findAll", "SELECT e FROM " + entityName + " e ORDER BY e.id", entityClass)
+                .setFirstResult(first)
+                .setMaxResults(range[1] - first + 1)
+                .getResultList();
+    }
+
+    /**
+     * Keyset page: the first limit entities with an id above afterId, in id
+     * order. The id index is sought directly, so deep pages cost the same as
+     * the first one, unlike findRange() which skips offset rows.
+     *
+     * @param afterId the last id of the previous page, or null for the first page
+     * @param limit the most entities to return
+     * @return the page
+     */
+    public List<T> findAfter(Long afterId, int limit) {
+        TypedQuery<T> page;
+        if (afterId == null) {
+            page = query("findAll", "SELECT e FROM " + entityName + " e ORDER BY e.id", entityClass);
+        } else {
+            page = query("findAfter", "SELECT e FROM " + entityName + " e WHERE e.id > :after ORDER BY e.id", entityClass)
+                    .setParameter("after", afterId);
+        }
+        return page.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Loads many entities by id with a few IN queries instead of one find()
+     * each. Ids that do not exist are left out.
+     *
+     * @param ids the ids to load
+     * @return the entities found, in id order within each chunk
+     */
+    public List<T> findByIds(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<T> found = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += IN_CHUNK_SIZE) {
+            found.addAll(query("findByIds", "SELECT e FROM " + entityName + " e WHERE e.id IN :ids ORDER BY e.id", entityClass)
+                    .setParameter("ids", idList.subList(from, Math.min(from + IN_CHUNK_SIZE, idList.size())))
+                    .getResultList());
+        }
+        return found;
+    }
+
+    /**
+     * Reads every entity in id order, chunkSize at a time, handing each to
+     * action. Each chunk is streamed from the JDBC cursor, read-only, and the
+     * persistence context is cleared after it, so memory stays bounded by one
+     * chunk however big the table is. Entities passed to action must not be
+     * changed.
+     *
+     * @param chunkSize the most entities read per query
+     * @param action what to do with each entity
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void forEach(int chunkSize, Consumer<? super T> action) {
+        Long after = null;
+        int read;
+        do {
+            TypedQuery<T> query = after == null
+                    ? query("findAll", "SELECT e FROM " + entityName + " e ORDER BY e.id", entityClass)
+                    : query("findAfter", "SELECT e FROM " + entityName + " e WHERE e.id > :after ORDER BY e.id", entityClass)
+                            .setParameter("after", after);
+            query.setMaxResults(chunkSize)
+                    .setHint("eclipselink.jdbc.fetch-size", chunkSize)
+                    .setHint("eclipselink.read-only", "true");
+            read = 0;
+            // Streamed, so a chunk is read from the cursor as it is written rather than held in a list
+            try (Stream<T> rows = query.getResultStream()) {
+                for (Iterator<T> entities = rows.iterator(); entities.hasNext();) {
+                    T entity = entities.next();
+                    action.accept(entity);
+                    after = idOf(entity);
+                    read++;
+                }
+            }
+            getEntityManager().clear();
+        } while (read == chunkSize);
     }
 
     public int count() {
-        CriteriaQuery cq = getEntityManager().getCriteriaBuilder().createQuery();
-        Root<T> rt = cq.from(entityClass);
-        cq.select(getEntityManager().getCriteriaBuilder().count(rt));
-        Query q = getEntityManager().createQuery(cq);
-        return ((Long) q.getSingleResult()).intValue();
+        return query("count", "SELECT COUNT(e) FROM " + entityName + " e", Long.class)
+                .getSingleResult().intValue();
     }
 
+    /**
+     * Creates a query from a named query of this entity, registering it from
+     * jpql the first time. Also serves projections, by passing the type the
+     * select clause returns.
+     *
+     * @param name the query name, unique within this entity
+     * @param jpql the query text; always the same for a given name
+     * @param resultType the type of each result
+     * @return a fresh query, ready for parameters
+     */
+    protected <R> TypedQuery<R> query(String name, String jpql, Class<R> resultType) {
+        EntityManager em = getEntityManager();
+        String fullName = entityName + "." + name;
+        if (!REGISTERED.contains(fullName)) {
+            em.getEntityManagerFactory().addNamedQuery(fullName, em.createQuery(jpql));
+            REGISTERED.add(fullName);
+        }
+        return em.createNamedQuery(fullName, resultType);
+    }
+
+    private Long idOf(T entity) {
+        return (Long) getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+    }
 }
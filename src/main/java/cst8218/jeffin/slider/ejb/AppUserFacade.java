@@ -0,0 +1,53 @@
+package cst8218.jeffin.slider.ejb;
+
+import cst8218.jeffin.slider.entity.AppUser;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * Data access for AppUser.
+ *
+ * @author leoje
+ */
+@Stateless
+public class AppUserFacade extends AbstractFacade<AppUser> {
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return em;
+    }
+
+    public AppUserFacade() {
+        super(AppUser.class);
+    }
+
+    /**
+     * Looks a user up by login name through the cached named query.
+     *
+     * @param userid the login name
+     * @return the user, or null if there is none
+     */
+    public AppUser findByUserid(String userid) {
+        List<AppUser> users = em.createNamedQuery("AppUser.findByUserid", AppUser.class)
+                .setParameter("userid", userid)
+                .getResultList();
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    /**
+     * Reads only what login needs, without loading the entity.
+     *
+     * @param userid the login name
+     * @return {password hash, groupname}, or null if there is no such user
+     */
+    public Object[] findCredentials(String userid) {
+        List<Object[]> rows = em.createNamedQuery("AppUser.findCredentials", Object[].class)
+                .setParameter("userid", userid)
+                .getResultList();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
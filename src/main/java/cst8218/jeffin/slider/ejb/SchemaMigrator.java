@@ -0,0 +1,152 @@
+package cst8218.jeffin.slider.ejb;
+
+import cst8218.jeffin.slider.entity.AppUser;
+import cst8218.jeffin.slider.entity.Slider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.sql.DataSource;
+
+/**
+ * Brings an existing database up to the entities' schema at startup.
+ *
+ * Schema generation only creates tables that do not exist yet, so a table
+ * made by an older version of the application never gets the indexes
+ * declared since, nor the column of a @Version added since, such as
+ * Slider's VERSION. This adds whatever is missing, checked against the JDBC
+ * metadata, and is a no-op on an up-to-date database. Both are read from
+ * the entities' own mappings, so they are declared in one place. Set slider.schema.migrate=false to skip it.
+ *
+ * @author leoje
+ */
+@Startup
+@Singleton
+@LocalBean
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class SchemaMigrator {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("slider.schema.migrate", "true"));
+    private static final List<Class<?>> ENTITIES = Arrays.asList(Slider.class, AppUser.class);
+
+    @Resource(lookup = "java:comp/DefaultDataSource")
+    private DataSource dataSource;
+
+    private final List<String> applied = new ArrayList<>();
+
+    @PostConstruct
+    public void migrate() {
+        if (!ENABLED) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String schema = connection.getSchema();
+            for (Class<?> entity : ENTITIES) {
+                addVersionColumn(connection, metaData, schema, entity);
+                createIndexes(connection, metaData, schema, entity);
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the DDL statements run at startup, in order
+     */
+    public List<String> getApplied() {
+        return new ArrayList<>(applied);
+    }
+
+    /**
+     * Adds the column of the entity's @Version field if its table predates
+     * it, as Slider's does. Existing rows start at version 0, so their ETags
+     * and If-Match checks work straight away.
+     */
+    private void addVersionColumn(Connection connection, DatabaseMetaData metaData, String schema,
+            Class<?> entity) throws SQLException {
+        for (Field field : entity.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Version.class)) {
+                String table = tableOf(entity);
+                String column = field.getName().toUpperCase(Locale.ROOT);
+                if (!tableExists(metaData, schema, table)) {
+                    return;
+                }
+                try (ResultSet columns = metaData.getColumns(null, schema, table, column)) {
+                    if (columns.next()) {
+                        return;
+                    }
+                }
+                execute(connection, "ALTER TABLE " + table + " ADD COLUMN " + column + " BIGINT DEFAULT 0");
+                return;
+            }
+        }
+    }
+
+    private void createIndexes(Connection connection, DatabaseMetaData metaData, String schema,
+            Class<?> entity) throws SQLException {
+        Table mapping = entity.getAnnotation(Table.class);
+        if (mapping == null || mapping.indexes().length == 0) {
+            return;
+        }
+        String table = tableOf(entity);
+        if (!tableExists(metaData, schema, table)) {
+            return;
+        }
+        Set<String> existing = new HashSet<>();
+        try (ResultSet indexes = metaData.getIndexInfo(null, schema, table, false, true)) {
+            while (indexes.next()) {
+                String name = indexes.getString("INDEX_NAME");
+                if (name != null) {
+                    existing.add(name.toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        for (Index index : mapping.indexes()) {
+            if (!existing.contains(index.name().toUpperCase(Locale.ROOT))) {
+                execute(connection, "CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX "
+                        + index.name() + " ON " + table + " (" + index.columnList() + ")");
+            }
+        }
+    }
+
+    private static String tableOf(Class<?> entity) {
+        Table mapping = entity.getAnnotation(Table.class);
+        String name = mapping == null || mapping.name().isEmpty() ? entity.getSimpleName() : mapping.name();
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean tableExists(DatabaseMetaData metaData, String schema, String table) throws SQLException {
+        try (ResultSet tables = metaData.getTables(null, schema, table, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private void execute(Connection connection, String ddl) {
+        // One failure, e.g. duplicate userids under a unique index, must not stop the rest
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ddl);
+            applied.add(ddl);
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
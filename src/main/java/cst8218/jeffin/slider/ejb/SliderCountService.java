@@ -0,0 +1,112 @@
+package cst8218.jeffin.slider.ejb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the number of sliders so pages and REST never run COUNT(*).
+ *
+ * The table is counted once at startup; after that every create and delete
+ * has to be reported, once its transaction has committed. In EXACT mode that
+ * is all there is. In APPROXIMATE mode the table is also recounted every
+ * REFRESH_MS milliseconds, which corrects drift from writes made outside the
+ * application at the cost of one COUNT(*) per interval.
+ *
+ * @author leoje
+ */
+@Startup
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SliderCountService {
+
+    /**
+     * How the count is kept.
+     */
+    public enum Mode {
+        EXACT,
+        APPROXIMATE
+    }
+
+    // Count settings, overridable with system properties
+    private static final Mode MODE = Mode.valueOf(System.getProperty("slider.count.mode", "EXACT"));
+    private static final long REFRESH_MS = Long.getLong("slider.count.refreshMs", 5000);
+
+    @EJB
+    private SliderFacade sliderFacade;
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private final AtomicLong count = new AtomicLong();
+    private ScheduledFuture<?> refreshTask;
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        if (MODE == Mode.APPROXIMATE) {
+            refreshTask = scheduler.scheduleWithFixedDelay(this::refresh, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+    }
+
+    /**
+     * @return the number of sliders, without querying the database
+     */
+    public int getCount() {
+        return (int) Math.max(0, count.get());
+    }
+
+    /**
+     * @param created how many sliders were created
+     */
+    public void sliderCreated(int created) {
+        count.addAndGet(created);
+    }
+
+    /**
+     * Records one created slider.
+     */
+    public void sliderCreated() {
+        sliderCreated(1);
+    }
+
+    /**
+     * Records one deleted slider.
+     */
+    public void sliderRemoved() {
+        count.decrementAndGet();
+    }
+
+    /**
+     * Replaces the count with a fresh COUNT(*).
+     */
+    public void refresh() {
+        try {
+            count.set(sliderFacade.count());
+        } catch (RuntimeException exception) {
+            // Keep the last count; the next refresh tries again
+            exception.printStackTrace();
+        }
+    }
+
+    public Mode getMode() {
+        return MODE;
+    }
+}
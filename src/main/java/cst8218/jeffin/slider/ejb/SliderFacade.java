@@ -11,10 +11,22 @@
  */
 package cst8218.jeffin.slider.ejb;
 
+import jakarta.annotation.Resource;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
 import cst8218.jeffin.slider.entity.Slider;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import javax.sql.DataSource;
 
 /**
  *
@@ -22,9 +34,16 @@ import cst8218.jeffin.slider.entity.Slider;
  */
 @Stateless
 public class SliderFacade extends AbstractFacade<Slider> {
+    // Writes only the fields timeStep() changes, and never the version
+    private static final String SAVE_STATE_SQL = "UPDATE SLIDER SET CURRENTTRAVEL = ?, MVTDIRECTION = ?,"
+            + " DIRCHANGECOUNT = ?, MAXTRAVEL = ? WHERE ID = ?";
+
     @PersistenceContext(unitName = "my_persistence_unit")
     private EntityManager em;
 
+    @Resource(lookup = "java:comp/DefaultDataSource")  // The unit's JTA data source
+    private DataSource dataSource;
+
     @Override
     protected EntityManager getEntityManager() {
         return em;
@@ -34,4 +53,75 @@ public class SliderFacade extends AbstractFacade<Slider> {
         super(Slider.class);
     }
 
+    /**
+     * Inserts the given sliders in one transaction. With batch writing on,
+     * the flush sends the INSERTs as JDBC batches, and the ids come from the
+     * preallocated block of the table generator, so no row costs a round
+     * trip of its own.
+     *
+     * @param sliders new sliders, already validated
+     * @return the number of sliders inserted; they now have their ids
+     */
+    public int createAll(List<Slider> sliders) {
+        for (Slider slider : sliders) {
+            em.persist(slider);
+        }
+        em.flush();
+        return sliders.size();
+    }
+
+    /**
+     * Writes the simulation fields of the given sliders back in one transaction,
+     * as one JDBC batch of UPDATEs. Only the fields timeStep() touches are
+     * written, so concurrent edits to size or position are kept, and a
+     * slider deleted in the meantime simply matches no row.
+     *
+     * The game's motion is not an edit: the version, which backs the REST
+     * ETags and If-Match, is left alone, so it only changes when someone
+     * edits the slider. The rows change underneath the shared cache, so
+     * call evict() with the same ids once this has committed.
+     *
+     * @param sliders detached copies holding the state to save
+     * @return the number of sliders updated
+     */
+    public int saveState(List<Slider> sliders) {
+        if (sliders.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement update = connection.prepareStatement(SAVE_STATE_SQL)) {
+            for (Slider slider : sliders) {
+                update.setInt(1, slider.getCurrentTravel());
+                update.setInt(2, slider.getMvtDirection());
+                update.setInt(3, slider.getDirChangeCount());
+                update.setInt(4, slider.getMaxTravel());
+                update.setLong(5, slider.getId());
+                update.addBatch();
+            }
+            for (int count : update.executeBatch()) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    updated++;
+                }
+            }
+        } catch (SQLException exception) {
+            throw new PersistenceException("Saving the state of " + sliders.size() + " sliders failed", exception);
+        }
+        return updated;
+    }
+
+    /**
+     * Drops sliders from the shared cache, so the next read loads the row
+     * saveState() wrote.
+     *
+     * @param ids the ids of the sliders to drop
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public void evict(Collection<Long> ids) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        for (Long id : ids) {
+            cache.evict(Slider.class, id);
+        }
+    }
+
 }
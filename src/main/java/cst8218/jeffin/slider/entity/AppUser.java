@@ -4,37 +4,46 @@
  */
 package cst8218.jeffin.slider.entity;
 
-import jakarta.enterprise.inject.Instance;
-import jakarta.enterprise.inject.spi.CDI;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.security.enterprise.identitystore.DatabaseIdentityStoreDefinition;
-import jakarta.security.enterprise.identitystore.PasswordHash;
-import jakarta.security.enterprise.identitystore.Pbkdf2PasswordHash;
+import jakarta.persistence.Index;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import java.io.Serializable;
-import java.util.HashMap;
 
 /**
  * Entity class representing an application user.
  * This class is used for managing user credentials and group information in the database.
- * It also integrates with security mechanisms for password hashing and identity management.
+ * Passwords are hashed by PasswordHashService before a user is saved, never in the entity itself.
  * 
  * @author User
  */
-@DatabaseIdentityStoreDefinition(
-    dataSourceLookup = "${'java:comp/DefaultDataSource'}",
-    callerQuery = "#{'select password from app.appuser where userid = ?'}",
-    groupsQuery = "select groupname from app.appuser where userid = ?",
-    hashAlgorithm = PasswordHash.class,
-    priority = 10
-)
-
 /**
  * AppUser main class
  */
 @Entity
+@Cacheable
+// Every login looks a user up by userid, which must also be unique
+@Table(indexes = @Index(name = "APPUSER_USERID", columnList = "USERID", unique = true))
+@NamedQueries({
+    @NamedQuery(name = "AppUser.findByUserid",
+            query = "SELECT u FROM AppUser u WHERE u.userid = :userid"),
+    // Only what the identity store needs; the entity getter hides the password hash
+    @NamedQuery(name = "AppUser.findCredentials",
+            query = "SELECT u.password, u.groupname FROM AppUser u WHERE u.userid = :userid",
+            hints = {
+                // Every login the credential cache misses, e.g. a wrong password, reads the same
+                // few users again; changes to AppUser invalidate the results
+                @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+                @QueryHint(name = "eclipselink.query-results-cache.size", value = "500")
+            })
+})
 public class AppUser implements Serializable {
 
     /** Serial version UID for serialization. */
@@ -50,6 +59,10 @@ public class AppUser implements Serializable {
     
     /** The hashed password of the user. */
     private String password;
+
+    /** A new password set through the forms, until it is hashed. */
+    @Transient
+    private transient String rawPassword;
     
     /** The group name associated with the user. */
     private String groupname;
@@ -100,23 +113,35 @@ public class AppUser implements Serializable {
     }
     
     /**
-     * Sets the user's password, hashing it before storage.
-     * Uses the PBKDF2 algorithm for password hashing.
+     * Sets the user's new password, in the clear. It is not persisted:
+     * PasswordHashService turns it into the stored hash before the user is
+     * saved.
      * 
      * @param password The password to set for the user.
      */
     public void setPassword(String password) {
-        if (password != null && !password.isEmpty()) {
-            // Obtain an instance of PasswordHash and initialize it
-            Instance<? extends PasswordHash> instance = CDI.current().select(Pbkdf2PasswordHash.class);
-            PasswordHash passwordHash = instance.get();
-            passwordHash.initialize(new HashMap<String, String>());
-            
-            // Generate the hashed password and store it
-            this.password = passwordHash.generate(password.toCharArray());
-        }
+        this.rawPassword = password;
     }
-    
+
+    /**
+     * Gets the password set since the user was loaded, not yet hashed.
+     * 
+     * @return The raw password, or null if none was set.
+     */
+    public String getRawPassword() {
+        return rawPassword;
+    }
+
+    /**
+     * Sets the stored password hash and forgets the raw password.
+     * 
+     * @param passwordHash The hash generated by PasswordHashService.
+     */
+    public void setPasswordHash(String passwordHash) {
+        this.password = passwordHash;
+        this.rawPassword = null;
+    }
+
     /**
      * Gets the group name associated with the user.
      * 
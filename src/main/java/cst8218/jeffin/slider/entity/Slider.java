@@ -4,10 +4,15 @@
  */
 package cst8218.jeffin.slider.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -18,6 +23,15 @@ import java.io.Serializable;
  * @author leoje
  */
 @Entity
+@Cacheable
+// One index per sortable column of the JSF list, with the id as tie-breaker,
+// so each keyset page is a seek and a short scan (see SliderListCriteria)
+@Table(indexes = {
+    @Index(name = "SLIDER_SIZE_ID", columnList = "SIZE, ID"),
+    @Index(name = "SLIDER_X_ID", columnList = "X, ID"),
+    @Index(name = "SLIDER_Y_ID", columnList = "Y, ID"),
+    @Index(name = "SLIDER_MAXTRAVEL_ID", columnList = "MAXTRAVEL, ID")
+})
 public class Slider implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -32,8 +46,12 @@ public class Slider implements Serializable {
     public static final int DECREASE_RATE = 1;
     public static final int TRAVEL_SPEED = 5;
     
+    // Same table and row as the provider's AUTO default, so existing ids carry on;
+    // a large allocation keeps bulk inserts from fetching ids every 50 rows
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TableGenerator(name = "SliderIds", table = "SEQUENCE", pkColumnName = "SEQ_NAME",
+            valueColumnName = "SEQ_COUNT", pkColumnValue = "SEQ_GEN", allocationSize = 1000)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "SliderIds")
     private Long id;
 
     @NotNull
@@ -65,6 +83,9 @@ public class Slider implements Serializable {
     @NotNull
     private Integer dirChangeCount = 0;
 
+    @Version
+    private Long version; // bumped on every edit, but not by the game's motion writes; backs the REST ETags
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -130,6 +151,14 @@ public class Slider implements Serializable {
         this.dirChangeCount = dirChangeCount;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         int hash = 0;
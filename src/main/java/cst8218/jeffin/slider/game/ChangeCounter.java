@@ -0,0 +1,41 @@
+package cst8218.jeffin.slider.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to the slider table, so collection responses can be tagged
+ * and revalidated without querying it.
+ *
+ * The tag combines the start time of the counter with the count, so tags
+ * handed out before a restart never match again afterwards.
+ *
+ * @author leoje
+ */
+public class ChangeCounter {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong count = new AtomicLong();
+    private volatile long lastModified = epoch;
+
+    /**
+     * Records a change.
+     */
+    public void changed() {
+        count.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * @return an opaque value that differs after every change
+     */
+    public String getTag() {
+        return Long.toString(epoch, 36) + "-" + count.get();
+    }
+
+    /**
+     * @return the time of the last change, in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,80 @@
+package cst8218.jeffin.slider.game;
+
+import cst8218.jeffin.slider.entity.Slider;
+import java.util.List;
+
+/**
+ * What changed in the game during one tick.
+ *
+ * Sliders moved by the simulation are listed by their motion fields only,
+ * in parallel arrays; sliders created or edited through REST or JSF are
+ * listed in full, and deleted ones by id. A frame is immutable once built
+ * and may be shared by any number of readers.
+ *
+ * @author leoje
+ */
+public class SliderFrame {
+
+    private final long tick;
+    private final long[] ids;
+    private final int[] currentTravel;
+    private final int[] mvtDirection;
+    private final int[] maxTravel;
+    private final List<Slider> updated;
+    private final List<Long> removed;
+
+    /**
+     * @param tick the tick the frame ends on
+     * @param ids the ids of the sliders that moved
+     * @param currentTravel their currentTravel, by position in ids
+     * @param mvtDirection their mvtDirection, by position in ids
+     * @param maxTravel their maxTravel, by position in ids
+     * @param updated sliders created or edited since the last frame
+     * @param removed ids of sliders deleted since the last frame
+     */
+    public SliderFrame(long tick, long[] ids, int[] currentTravel, int[] mvtDirection, int[] maxTravel,
+            List<Slider> updated, List<Long> removed) {
+        this.tick = tick;
+        this.ids = ids;
+        this.currentTravel = currentTravel;
+        this.mvtDirection = mvtDirection;
+        this.maxTravel = maxTravel;
+        this.updated = updated;
+        this.removed = removed;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return the number of sliders that moved
+     */
+    public int getMovedCount() {
+        return ids.length;
+    }
+
+    public long getId(int position) {
+        return ids[position];
+    }
+
+    public int getCurrentTravel(int position) {
+        return currentTravel[position];
+    }
+
+    public int getMvtDirection(int position) {
+        return mvtDirection[position];
+    }
+
+    public int getMaxTravel(int position) {
+        return maxTravel[position];
+    }
+
+    public List<Slider> getUpdated() {
+        return updated;
+    }
+
+    public List<Long> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,17 @@
+package cst8218.jeffin.slider.game;
+
+/**
+ * Receives the frame of every tick from {@link SliderGame}.
+ *
+ * Listeners are called on the game's tick thread, so they must hand the frame
+ * off quickly and never block.
+ *
+ * @author leoje
+ */
+public interface SliderFrameListener {
+
+    /**
+     * @param frame what changed during the tick
+     */
+    void frameReady(SliderFrame frame);
+}
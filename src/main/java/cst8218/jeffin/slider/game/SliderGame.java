@@ -7,55 +7,238 @@ package cst8218.jeffin.slider.game;
 import cst8218.jeffin.slider.ejb.SliderFacade;
 import cst8218.jeffin.slider.entity.Slider;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.LocalBean;
 import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Runs the slider simulation.
+ *
+ * The live slider state is held in a {@link SliderWorld} and stepped in
+ * memory; the database is only a durable copy that a {@link SliderWriteBehind}
+ * brings up to date every FLUSH_INTERVAL_MS milliseconds. REST and JSF writes must be
+ * reported through {@link #sliderSaved(Slider)}, {@link #sliderEdited(Slider, Slider)}
+ * and {@link #sliderRemoved(Long)}, once committed, so the world follows them.
+ *
+ * After every tick the changes are cut into a {@link SliderFrame} and handed
+ * to the registered {@link SliderFrameListener}s, which is how the live
+ * streams follow the game without reading the database.
+ *
+ * Every change to the slider table, from the write-behind or reported
+ * through sliderSaved() and sliderRemoved(), is counted on a
+ * {@link ChangeCounter} that REST uses to tag collection responses.
  *
  * @author leoje
  */
 @Startup
 @Singleton
+@DependsOn("SchemaMigrator")  // Loads sliders, so the table has to be migrated first
 @LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class SliderGame {
     @EJB
-    private SliderFacade sliderFacade;  // Inject SliderFacade to access and modify Slider entities
-    private List<Slider> sliders;       // List to hold all sliders
+    private SliderFacade sliderFacade;  // Inject SliderFacade to load and save Slider entities
+    @Resource
+    private ManagedScheduledExecutorService scheduler;  // Runs the ticks and the write-behind flushes
+    @Resource
+    private ManagedExecutorService executor;  // Runs the shards of a parallel tick
+    private final SliderWorld world = new SliderWorld();  // Authoritative in-memory slider state
+    private final ChangeCounter changes = new ChangeCounter();  // Bumped on every change to the slider table
+    private SliderWriteBehind writeBehind;  // Saves the world back to the database
+    private ScheduledFuture<?> flushTask;
+    private TickScheduler ticker;  // Calls tick() CHANGE_RATE times per second
+    private final List<SliderFrameListener> frameListeners = new CopyOnWriteArrayList<>();
 
     // Define the game constants
     private static final double CHANGE_RATE = 30.0;  // How many times per second to update
 
+    // Tick settings, overridable with system properties
+    private static final TickScheduler.OverrunPolicy TICK_POLICY =
+            TickScheduler.OverrunPolicy.valueOf(System.getProperty("slider.tick.policy", "CATCH_UP"));
+    private static final int TICK_MAX_CATCH_UP = Integer.getInteger("slider.tick.maxCatchUp", 5);
+    private static final int TICK_SHARDS = Integer.getInteger("slider.tick.shards", Runtime.getRuntime().availableProcessors());
+    private static final int TICK_MIN_SHARD_SIZE = Integer.getInteger("slider.tick.minShardSize", 4096);
+
+    // Write-behind settings, overridable with system properties
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("slider.persist.intervalMs", 500);
+    private static final int FLUSH_BATCH_SIZE = Integer.getInteger("slider.persist.batchSize", 500);
+    private static final int FLUSH_MAX_PENDING = Integer.getInteger("slider.persist.maxPending", 50000);
+
     /**
      * This method starts the game and runs the simulation indefinitely.
      */
     @PostConstruct
     public void go() {
-        // Start a new thread for game loop
-        new Thread(new Runnable() {
-            public void run() {
-                // The game runs indefinitely
-                while (true) {
-                    // Fetch all sliders from the database
-                    sliders = sliderFacade.findAll();
-
-                    // Update each slider by calling their timeStep method and save changes
-                    for (Slider slider : sliders) {
-                        slider.timeStep();
-                        sliderFacade.edit(slider);  // Save updated slider to the database
-                    }
-
-                    // Sleep for a short period before processing the next frame
-                    try {
-                        // Wake up roughly CHANGE_RATE times per second
-                        Thread.sleep((long) (1.0 / CHANGE_RATE * 1000));
-                    } catch (InterruptedException exception) {
-                        exception.printStackTrace();
-                    }
-                }
+        // Load the starting state once; from here on the world is the source of truth
+        world.load(sliderFacade.findAll());
+        world.setParallelism(executor, TICK_SHARDS, TICK_MIN_SHARD_SIZE);
+
+        // Save changed sliders in the background instead of from the game loop
+        writeBehind = new SliderWriteBehind(world, sliderFacade, changes, FLUSH_BATCH_SIZE, FLUSH_MAX_PENDING);
+        flushTask = scheduler.scheduleWithFixedDelay(writeBehind::flush,
+                FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        // Run the game loop at a fixed rate until the application stops
+        ticker = new TickScheduler(scheduler, CHANGE_RATE, TICK_POLICY, TICK_MAX_CATCH_UP, this::tick);
+        ticker.start();
+    }
+
+    /**
+     * Stops the game loop and the background flushes, then saves whatever is
+     * still pending.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.stop();
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        if (writeBehind != null) {
+            writeBehind.flushAll();
+        }
+    }
+
+    /**
+     * Applies a slider that was created or edited outside the game.
+     *
+     * @param slider the slider as it was saved
+     */
+    public void sliderSaved(Slider slider) {
+        world.put(slider);
+        changes.changed();
+    }
+
+    /**
+     * Applies a partial edit made outside the game. Only the fields the edit
+     * set replace the live ones, so the motion the game made since the row
+     * was read is kept.
+     *
+     * @param slider the slider as it was saved, used if the game does not hold it
+     * @param edits the fields that were edited; the others are null
+     */
+    public void sliderEdited(Slider slider, Slider edits) {
+        if (!world.apply(slider.getId(), edits)) {
+            world.put(slider);
+        }
+        changes.changed();
+    }
+
+    /**
+     * Removes a slider that was deleted outside the game.
+     *
+     * @param id the id of the deleted slider
+     */
+    public void sliderRemoved(Long id) {
+        world.remove(id);
+        changes.changed();
+    }
+
+    /**
+     * Records a change to the slider table without touching the game, e.g.
+     * once the transaction that made it has committed.
+     */
+    public void sliderTableChanged() {
+        changes.changed();
+    }
+
+    /**
+     * @return the counter of changes to the slider table
+     */
+    public ChangeCounter getChangeCounter() {
+        return changes;
+    }
+
+    /**
+     * Starts handing the frame of every tick to a listener.
+     *
+     * @param listener the listener, called on the tick thread
+     */
+    public void addFrameListener(SliderFrameListener listener) {
+        frameListeners.add(listener);
+    }
+
+    /**
+     * Stops handing frames to a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeFrameListener(SliderFrameListener listener) {
+        frameListeners.remove(listener);
+    }
+
+    /**
+     * @return copies of every slider as it is right now, for a stream's first frame
+     */
+    public List<Slider> getLiveSliders() {
+        return world.snapshot();
+    }
+
+    /**
+     * Gets the live state of one slider.
+     *
+     * @param id the slider id
+     * @return a copy of the in-memory slider, or null if there is none
+     */
+    public Slider getLiveSlider(Long id) {
+        return world.get(id);
+    }
+
+    /**
+     * @return tick duration, jitter and missed tick counts of the game loop,
+     *         and how many sliders are still active
+     */
+    public Map<String, Object> getTickMetrics() {
+        Map<String, Object> metrics = ticker.getMetrics();
+        metrics.put("activeSliders", world.getActiveCount());
+        metrics.put("dormantSliders", world.size() - world.getActiveCount());
+        return metrics;
+    }
+
+    /**
+     * @return lag, batch size and flush time of the write-behind stage
+     */
+    public Map<String, Object> getPersistenceMetrics() {
+        return writeBehind.getMetrics();
+    }
+
+    /**
+     * Advances the game. Called by the ticker only, normally for one frame,
+     * or for several when catching up after an overrun.
+     *
+     * @param tick the number of the first frame
+     * @param count how many frames to advance
+     */
+    private void tick(long tick, int count) {
+        // Update each slider in memory; the write-behind saves them later
+        world.step(count);
+
+        // Only cut a frame when someone is watching
+        if (frameListeners.isEmpty()) {
+            world.clearFrame();
+            return;
+        }
+        SliderFrame frame = world.takeFrame(tick + count - 1);
+        for (SliderFrameListener listener : frameListeners) {
+            try {
+                listener.frameReady(frame);
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
             }
-        }).start();
+        }
     }
 }
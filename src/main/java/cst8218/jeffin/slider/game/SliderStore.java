@@ -0,0 +1,333 @@
+package cst8218.jeffin.slider.game;
+
+import cst8218.jeffin.slider.entity.Slider;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays slider storage for the simulation hot path.
+ *
+ * Each slider field lives in its own primitive array and a slider is just an
+ * index into them, so stepping never boxes or allocates. The step kernel
+ * reproduces {@link Slider#timeStep()} exactly, but is written as straight
+ * line integer arithmetic without branches so the JIT can unroll and
+ * vectorize it. Sliders are converted to and from the JPA entity only at the
+ * persistence boundary.
+ *
+ * Stepping also reports the sliders that settle, i.e. whose maxTravel decays
+ * to 0 so that timeStep() will never move them again. Their indexes are
+ * written to a scratch buffer at the start of the stepped range, which lets
+ * the caller move them out of the range it keeps stepping. Every slider
+ * that is stepped is also flagged as framed, a flag that stays with the
+ * slider when it is swapped, so the caller can tell which sliders moved
+ * since it last cut a frame wherever they end up.
+ *
+ * Not thread-safe; {@link SliderWorld} guards it. Different index ranges may
+ * be stepped concurrently.
+ *
+ * @author leoje
+ */
+public class SliderStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int count;
+    private long[] id = new long[INITIAL_CAPACITY];
+    private int[] size = new int[INITIAL_CAPACITY];
+    private int[] x = new int[INITIAL_CAPACITY];
+    private int[] y = new int[INITIAL_CAPACITY];
+    private int[] maxTravel = new int[INITIAL_CAPACITY];
+    private int[] currentTravel = new int[INITIAL_CAPACITY];
+    private int[] mvtDirection = new int[INITIAL_CAPACITY];
+    private int[] dirChangeCount = new int[INITIAL_CAPACITY];
+    private byte[] dirty = new byte[INITIAL_CAPACITY];  // 1 if changed since last drained
+    private byte[] framed = new byte[INITIAL_CAPACITY];  // 1 if stepped since the last frame
+    private int[] settled = new int[INITIAL_CAPACITY];  // scratch for indexes that settled in a step
+
+    /**
+     * @return the number of sliders stored
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Removes every slider.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Appends a slider.
+     *
+     * @param slider the entity to copy from
+     * @return the index of the new slider
+     */
+    public int add(Slider slider) {
+        if (count == id.length) {
+            grow();
+        }
+        set(count, slider);
+        framed[count] = 0;
+        return count++;
+    }
+
+    /**
+     * Overwrites the slider at index with the entity's values and clears its
+     * dirty flag. Null fields are stored as 0, except size which gets its default.
+     *
+     * @param index the slider to overwrite
+     * @param slider the entity to copy from
+     */
+    public void set(int index, Slider slider) {
+        id[index] = slider.getId();
+        size[index] = valueOf(slider.getSize(), Slider.INITIAL_SIZE);
+        x[index] = valueOf(slider.getX(), 0);
+        y[index] = valueOf(slider.getY(), 0);
+        maxTravel[index] = valueOf(slider.getMaxTravel(), 0);
+        currentTravel[index] = valueOf(slider.getCurrentTravel(), 0);
+        mvtDirection[index] = valueOf(slider.getMvtDirection(), 1);
+        dirChangeCount[index] = valueOf(slider.getDirChangeCount(), 0);
+        dirty[index] = 0;
+    }
+
+    /**
+     * Removes the slider at index by moving the last slider into its place.
+     *
+     * @param index the slider to remove
+     * @return the index the last slider came from, or -1 if index was the last one
+     */
+    public int removeSwap(int index) {
+        int last = --count;
+        if (index == last) {
+            return -1;
+        }
+        copy(last, index);
+        return last;
+    }
+
+    /**
+     * Swaps two sliders in place.
+     *
+     * @param a the index of one slider
+     * @param b the index of the other
+     */
+    public void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        long tmpId = id[a];
+        id[a] = id[b];
+        id[b] = tmpId;
+        swap(size, a, b);
+        swap(x, a, b);
+        swap(y, a, b);
+        swap(maxTravel, a, b);
+        swap(currentTravel, a, b);
+        swap(mvtDirection, a, b);
+        swap(dirChangeCount, a, b);
+        byte flag = dirty[a];
+        dirty[a] = dirty[b];
+        dirty[b] = flag;
+        flag = framed[a];
+        framed[a] = framed[b];
+        framed[b] = flag;
+    }
+
+    /**
+     * Advances the sliders at indexes from (inclusive) to to (exclusive) by one
+     * time step, with the same result as calling timeStep() on each entity.
+     * Every slider that moves is flagged dirty and framed; the indexes of
+     * sliders that settled are left at getSettled(from) onwards.
+     *
+     * @param from the first index to step
+     * @param to one past the last index to step
+     * @return the number of sliders that settled in the high 32 bits, and how
+     *         many sliders became dirty that were not dirty before in the low 32 bits
+     */
+    public long step(int from, int to) {
+        int newlyDirty = 0;
+        int settledCount = 0;
+        for (int i = from; i < to; i++) {
+            int m = maxTravel[i];
+            int d = mvtDirection[i];
+            int active = (-m) >>> 31;                                  // 1 if m > 0
+            int c = currentTravel[i] + active * d * Slider.TRAVEL_SPEED;
+            int flip = active & ((m - 1 - Math.abs(c)) >>> 31);       // 1 if |c| >= m
+            int k = dirChangeCount[i] + flip;
+            int decay = flip & ((Slider.MAX_DIR_CHANGES - k) >>> 31);  // 1 if k > MAX_DIR_CHANGES
+            currentTravel[i] = c;
+            mvtDirection[i] = d - 2 * flip * d;
+            dirChangeCount[i] = k - decay * k;
+            maxTravel[i] = m - decay * Slider.DECREASE_RATE;
+            newlyDirty += active & (dirty[i] ^ 1);
+            dirty[i] |= (byte) active;
+            framed[i] |= (byte) active;
+            settled[from + settledCount] = i;                            // always written, only kept
+            settledCount += decay & ((maxTravel[i] - 1) >>> 31);         // if maxTravel reached 0
+        }
+        return (long) settledCount << 32 | newlyDirty;
+    }
+
+    /**
+     * Advances the sliders at indexes from (inclusive) to to (exclusive) by
+     * several time steps at once using {@link SliderMotion}, with the same
+     * result as calling step() that many times.
+     *
+     * @param from the first index to advance
+     * @param to one past the last index to advance
+     * @param ticks how many time steps to apply
+     * @return the same as step()
+     */
+    public long advance(int from, int to, long ticks) {
+        int newlyDirty = 0;
+        int settledCount = 0;
+        for (int i = from; i < to; i++) {
+            if (maxTravel[i] <= 0 || ticks <= 0) {
+                continue;
+            }
+            SliderMotion motion = new SliderMotion(currentTravel[i], mvtDirection[i],
+                    dirChangeCount[i], maxTravel[i]).advance(ticks);
+            currentTravel[i] = motion.getCurrentTravel();
+            mvtDirection[i] = motion.getMvtDirection();
+            dirChangeCount[i] = motion.getDirChangeCount();
+            maxTravel[i] = motion.getMaxTravel();
+            newlyDirty += dirty[i] ^ 1;
+            dirty[i] = 1;
+            framed[i] = 1;
+            if (maxTravel[i] <= 0) {
+                settled[from + settledCount++] = i;
+            }
+        }
+        return (long) settledCount << 32 | newlyDirty;
+    }
+
+    /**
+     * @param position a position in the settled scratch buffer
+     * @return the index of a slider that settled in the last step
+     */
+    public int getSettled(int position) {
+        return settled[position];
+    }
+
+    /**
+     * @param index the slider
+     * @return the slider's id
+     */
+    public long getId(int index) {
+        return id[index];
+    }
+
+    /**
+     * @param index the slider
+     * @return the slider's maxTravel
+     */
+    public int getMaxTravel(int index) {
+        return maxTravel[index];
+    }
+
+    /**
+     * @param index the slider
+     * @return the slider's currentTravel
+     */
+    public int getCurrentTravel(int index) {
+        return currentTravel[index];
+    }
+
+    /**
+     * @param index the slider
+     * @return the slider's mvtDirection
+     */
+    public int getMvtDirection(int index) {
+        return mvtDirection[index];
+    }
+
+    /**
+     * @param index the slider
+     * @return true if the slider changed since its dirty flag was last cleared
+     */
+    public boolean isDirty(int index) {
+        return dirty[index] != 0;
+    }
+
+    /**
+     * @param index the slider
+     * @param value the new dirty flag
+     */
+    public void setDirty(int index, boolean value) {
+        dirty[index] = (byte) (value ? 1 : 0);
+    }
+
+    /**
+     * @param index the slider
+     * @return true if the slider was stepped since its framed flag was last cleared
+     */
+    public boolean isFramed(int index) {
+        return framed[index] != 0;
+    }
+
+    /**
+     * @param index the slider
+     * @param value the new framed flag
+     */
+    public void setFramed(int index, boolean value) {
+        framed[index] = (byte) (value ? 1 : 0);
+    }
+
+    /**
+     * Converts the slider at index back to a detached JPA entity.
+     *
+     * @param index the slider
+     * @return a new Slider holding the stored values
+     */
+    public Slider toEntity(int index) {
+        Slider slider = new Slider();
+        slider.setId(id[index]);
+        slider.setSize(size[index]);
+        slider.setX(x[index]);
+        slider.setY(y[index]);
+        slider.setMaxTravel(maxTravel[index]);
+        slider.setCurrentTravel(currentTravel[index]);
+        slider.setMvtDirection(mvtDirection[index]);
+        slider.setDirChangeCount(dirChangeCount[index]);
+        return slider;
+    }
+
+    private void copy(int from, int to) {
+        id[to] = id[from];
+        size[to] = size[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        maxTravel[to] = maxTravel[from];
+        currentTravel[to] = currentTravel[from];
+        mvtDirection[to] = mvtDirection[from];
+        dirChangeCount[to] = dirChangeCount[from];
+        dirty[to] = dirty[from];
+        framed[to] = framed[from];
+    }
+
+    private void grow() {
+        int capacity = id.length * 2;
+        id = Arrays.copyOf(id, capacity);
+        size = Arrays.copyOf(size, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        maxTravel = Arrays.copyOf(maxTravel, capacity);
+        currentTravel = Arrays.copyOf(currentTravel, capacity);
+        mvtDirection = Arrays.copyOf(mvtDirection, capacity);
+        dirChangeCount = Arrays.copyOf(dirChangeCount, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+        framed = Arrays.copyOf(framed, capacity);
+        settled = Arrays.copyOf(settled, capacity);
+    }
+
+    private static void swap(int[] values, int a, int b) {
+        int tmp = values[a];
+        values[a] = values[b];
+        values[b] = tmp;
+    }
+
+    private static int valueOf(Integer value, int defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+}
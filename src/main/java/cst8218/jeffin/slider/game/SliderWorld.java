@@ -0,0 +1,458 @@
+package cst8218.jeffin.slider.game;
+
+import cst8218.jeffin.slider.entity.Slider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * In-memory, authoritative copy of every slider in the game.
+ *
+ * The game loop steps this world instead of the database. Writes coming from
+ * REST or JSF are applied here as well so the two never diverge, and the
+ * sliders that changed since the last persist are flagged so only those need
+ * to be written back. The state itself lives in a primitive
+ * {@link SliderStore}; Slider entities are only created when sliders are read
+ * or drained for saving.
+ *
+ * Sliders only touch their own fields in timeStep(), so a step can be split
+ * into shards that run in parallel on an executor. Each shard covers its own
+ * index range of the store, which keeps a parallel step identical to a serial
+ * one. Several ticks can be applied in one pass through {@link SliderMotion},
+ * which is how the game catches up after an overrun.
+ *
+ * Sliders whose maxTravel has decayed to 0 never move again, so the store is
+ * kept partitioned: active sliders at indexes [0, activeCount) and dormant
+ * ones after them. Only the active range is stepped. A slider that settles is
+ * written once more by the write-behind and then costs nothing per tick; an
+ * edit that gives it a positive maxTravel moves it back into the active range.
+ *
+ * What changed since the last {@link #takeFrame(long)} is tracked as well:
+ * the sliders stepped since then carry the store's framed flag, which
+ * follows them through every swap, and edits and deletions are kept by id.
+ * Edited sliders are copied when the frame is cut, so they never lag behind
+ * the motion in the same frame.
+ * All framed sliders sit below frameLimit, so cutting a frame only scans
+ * about the active range.
+ *
+ * All access is synchronized; the world never hands out its own state, only
+ * copies.
+ *
+ * @author leoje
+ */
+public class SliderWorld {
+
+    private final SliderStore store = new SliderStore();
+    private final Map<Long, Integer> indexById = new HashMap<>();
+    private int activeCount;  // sliders at indexes below this have maxTravel > 0
+    private int dirtyCount;
+    private long dirtySince;  // System.nanoTime() of the oldest unsaved change
+    private int drainCursor;  // where the next drain starts looking, so no slider starves
+    private int frameLimit;  // no slider at or above this index is framed
+    private final Set<Long> frameUpdates = new LinkedHashSet<>();  // Ids only; copied when the frame is cut
+    private final Set<Long> frameRemovals = new LinkedHashSet<>();
+
+    private ExecutorService executor;  // Runs the shards of a parallel step, null for serial
+    private int shards = 1;
+    private int minShardSize = 1;
+
+    /**
+     * Lets step() run in parallel. The world is split into at most shards
+     * pieces of at least minShardSize sliders, so small worlds stay serial.
+     *
+     * @param executor the executor to run the shards on, or null for serial steps
+     * @param shards the most shards to split a step into
+     * @param minShardSize the fewest sliders worth a shard of their own
+     */
+    public synchronized void setParallelism(ExecutorService executor, int shards, int minShardSize) {
+        this.executor = executor;
+        this.shards = Math.max(1, shards);
+        this.minShardSize = Math.max(1, minShardSize);
+    }
+
+    /**
+     * Replaces the whole world with the given sliders (usually a findAll()).
+     *
+     * @param loaded the sliders to hold
+     */
+    public synchronized void load(List<Slider> loaded) {
+        store.clear();
+        indexById.clear();
+        activeCount = 0;
+        dirtyCount = 0;
+        dirtySince = 0;
+        clearFrame();
+        for (Slider slider : loaded) {
+            add(slider);
+        }
+    }
+
+    /**
+     * Adds or replaces one slider after it was created or edited elsewhere.
+     * The new values are already persisted, so the slider is not marked dirty.
+     *
+     * @param slider the saved slider
+     */
+    public synchronized void put(Slider slider) {
+        if (slider == null || slider.getId() == null) {
+            return;
+        }
+        Integer index = indexById.get(slider.getId());
+        frameRemovals.remove(slider.getId());
+        if (index == null) {
+            add(slider);
+            frameUpdates.add(slider.getId());
+            return;
+        }
+        clearDirty(index);
+        store.set(index, slider);
+        frameUpdates.add(slider.getId());
+        boolean active = store.getMaxTravel(index) > 0;
+        if (active && index >= activeCount) {
+            // Woken up by an edit
+            swapSlots(index, activeCount++);
+        } else if (!active && index < activeCount) {
+            swapSlots(index, --activeCount);
+        }
+    }
+
+    /**
+     * Overwrites only the non-null fields of edits on a slider, keeping its
+     * live values for the rest. Unsaved motion stays marked dirty, since the
+     * fields that were not edited may be newer than the database.
+     *
+     * @param id the slider id
+     * @param edits the edited fields; the others are null
+     * @return false if the world does not hold the slider
+     */
+    public synchronized boolean apply(Long id, Slider edits) {
+        Integer index = indexById.get(id);
+        if (index == null) {
+            return false;
+        }
+        boolean dirty = store.isDirty(index);
+        Slider merged = store.toEntity(index);
+        merged.updateWithNonNullValues(edits);
+        put(merged);
+        if (dirty) {
+            markDirty(Collections.singletonList(id));
+        }
+        return true;
+    }
+
+    /**
+     * Forgets a slider that was deleted.
+     *
+     * @param id the id of the deleted slider
+     */
+    public synchronized void remove(Long id) {
+        Integer index = indexById.get(id);
+        if (index == null) {
+            return;
+        }
+        clearDirty(index);
+        // Move the slider to the very end without breaking the partition, then drop it
+        if (index < activeCount) {
+            swapSlots(index, activeCount - 1);
+            index = --activeCount;
+        }
+        swapSlots(index, store.size() - 1);
+        store.removeSwap(store.size() - 1);
+        indexById.remove(id);
+        frameUpdates.remove(id);
+        frameRemovals.add(id);
+    }
+
+    /**
+     * Advances every slider by one time step.
+     */
+    public synchronized void step() {
+        step(1);
+    }
+
+    /**
+     * Advances every slider by the given number of time steps. More than one
+     * step is computed in closed form rather than tick by tick.
+     *
+     * @param ticks how many time steps to apply
+     */
+    public synchronized void step(int ticks) {
+        if (ticks == 1) {
+            runSharded(store::step);
+        } else if (ticks > 1) {
+            runSharded((from, to) -> store.advance(from, to, ticks));
+        }
+    }
+
+    /**
+     * A step over one index range of the store, returning what
+     * {@link SliderStore#step(int, int)} returns.
+     */
+    private interface RangeOperation {
+        long apply(int from, int to);
+    }
+
+    /**
+     * Applies a range operation to the active sliders, split into shards when
+     * there are enough of them, then books the newly dirty sliders and moves
+     * the ones that settled out of the active range.
+     */
+    private void runSharded(RangeOperation rangeOperation) {
+        int size = activeCount;
+        int count = Math.min(shards, size / minShardSize);
+        int shardSize = count <= 1 ? Math.max(size, 1) : (size + count - 1) / count;
+        long[] results;
+        if (executor == null || count <= 1) {
+            results = new long[] {rangeOperation.apply(0, size)};
+        } else {
+            List<Future<Long>> futures = new ArrayList<>(count);
+            for (int from = 0; from < size; from += shardSize) {
+                int start = from;
+                int end = Math.min(from + shardSize, size);
+                futures.add(executor.submit(() -> rangeOperation.apply(start, end)));
+            }
+            results = new long[futures.size()];
+            boolean interrupted = false;
+            for (int shard = 0; shard < results.length; shard++) {
+                Future<Long> future = futures.get(shard);
+                while (true) {
+                    try {
+                        results[shard] = future.get();
+                        break;
+                    } catch (InterruptedException exception) {
+                        // A shard cannot be undone, so the tick is finished before the interrupt is passed on:
+                        // one that has not started yet is stepped here, one that has is waited for
+                        interrupted = true;
+                        if (future.cancel(false)) {
+                            int start = shard * shardSize;
+                            results[shard] = rangeOperation.apply(start, Math.min(start + shardSize, size));
+                            break;
+                        }
+                    } catch (ExecutionException exception) {
+                        throw new IllegalStateException("A shard of the slider step failed", exception.getCause());
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int settledCount = 0;
+        for (long result : results) {
+            addDirty((int) result);
+            settledCount += (int) (result >>> 32);
+        }
+        if (settledCount > 0) {
+            int[] settled = new int[settledCount];
+            int next = 0;
+            for (int shard = 0; shard < results.length; shard++) {
+                int start = shard * shardSize;
+                for (int i = 0; i < (int) (results[shard] >>> 32); i++) {
+                    settled[next++] = store.getSettled(start + i);
+                }
+            }
+            // Highest index first, so the slider swapped in from the end of
+            // the active range is never one that still has to be moved
+            Arrays.sort(settled);
+            for (int i = settled.length - 1; i >= 0; i--) {
+                swapSlots(settled[i], --activeCount);
+            }
+        }
+        // The settled sliders now sit right after the active ones and moved too
+        frameLimit = Math.max(frameLimit, activeCount + settledCount);
+    }
+
+    /**
+     * Cuts a frame of everything that changed since the last one: the motion
+     * of the sliders that were stepped, plus full copies of edited sliders
+     * and the ids of deleted ones.
+     *
+     * @param tick the tick number to stamp on the frame
+     * @return the changes, which are then forgotten
+     */
+    public synchronized SliderFrame takeFrame(long tick) {
+        int limit = Math.min(frameLimit, store.size());
+        int count = 0;
+        for (int i = 0; i < limit; i++) {
+            if (store.isFramed(i)) {
+                count++;
+            }
+        }
+        long[] ids = new long[count];
+        int[] currentTravel = new int[count];
+        int[] mvtDirection = new int[count];
+        int[] maxTravel = new int[count];
+        int next = 0;
+        for (int i = 0; i < limit; i++) {
+            if (store.isFramed(i)) {
+                ids[next] = store.getId(i);
+                currentTravel[next] = store.getCurrentTravel(i);
+                mvtDirection[next] = store.getMvtDirection(i);
+                maxTravel[next] = store.getMaxTravel(i);
+                next++;
+            }
+        }
+        // Copied now rather than when edited, so they agree with the motion above
+        List<Slider> updated = new ArrayList<>(frameUpdates.size());
+        for (Long id : frameUpdates) {
+            updated.add(store.toEntity(indexById.get(id)));
+        }
+        SliderFrame frame = new SliderFrame(tick, ids, currentTravel, mvtDirection, maxTravel,
+                updated, new ArrayList<>(frameRemovals));
+        clearFrame();
+        return frame;
+    }
+
+    /**
+     * Forgets the changes since the last frame, when nobody wants frames.
+     */
+    public synchronized void clearFrame() {
+        for (int i = Math.min(frameLimit, store.size()) - 1; i >= 0; i--) {
+            store.setFramed(i, false);
+        }
+        frameLimit = 0;
+        frameUpdates.clear();
+        frameRemovals.clear();
+    }
+
+    /**
+     * @return copies of every slider in the world
+     */
+    public synchronized List<Slider> snapshot() {
+        List<Slider> sliders = new ArrayList<>(store.size());
+        for (int i = 0; i < store.size(); i++) {
+            sliders.add(store.toEntity(i));
+        }
+        return sliders;
+    }
+
+    /**
+     * Returns copies of at most max sliders that changed since they were last
+     * drained and clears their dirty flags. A slider that keeps changing
+     * stays a single entry no matter how many ticks pass before it is drained.
+     *
+     * @param max the most sliders to return
+     * @return the changed sliders
+     */
+    public synchronized List<Slider> drainDirty(int max) {
+        int size = store.size();
+        List<Slider> changed = new ArrayList<>(Math.min(max, dirtyCount));
+        int seen = 0;
+        while (seen < size && changed.size() < max && dirtyCount > 0) {
+            int index = (drainCursor + seen++) % size;
+            if (store.isDirty(index)) {
+                changed.add(store.toEntity(index));
+                clearDirty(index);
+            }
+        }
+        drainCursor = size == 0 ? 0 : (drainCursor + seen) % size;
+        return changed;
+    }
+
+    /**
+     * Marks sliders as changed again, e.g. after saving them failed.
+     *
+     * @param ids the ids of the sliders to save later
+     */
+    public synchronized void markDirty(Collection<Long> ids) {
+        for (Long id : ids) {
+            Integer index = indexById.get(id);
+            if (index != null && !store.isDirty(index)) {
+                store.setDirty(index, true);
+                addDirty(1);
+            }
+        }
+    }
+
+    /**
+     * @return the number of sliders waiting to be saved
+     */
+    public synchronized int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * @return how long the oldest unsaved change has been waiting, in milliseconds
+     */
+    public synchronized long getDirtyAgeMillis() {
+        return dirtyCount == 0 ? 0 : (System.nanoTime() - dirtySince) / 1_000_000;
+    }
+
+    /**
+     * @param id the slider id
+     * @return a copy of the current in-memory state, or null if unknown
+     */
+    public synchronized Slider get(Long id) {
+        Integer index = indexById.get(id);
+        return index == null ? null : store.toEntity(index);
+    }
+
+    /**
+     * @return the number of sliders in the world
+     */
+    public synchronized int size() {
+        return store.size();
+    }
+
+    /**
+     * @return the number of sliders that still move, and are stepped each tick
+     */
+    public synchronized int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Appends a slider, into the active range if it moves.
+     *
+     * @return the index the slider ended up at
+     */
+    private int add(Slider slider) {
+        int index = store.add(slider);
+        indexById.put(slider.getId(), index);
+        if (store.getMaxTravel(index) > 0) {
+            swapSlots(index, activeCount);
+            index = activeCount++;
+        }
+        return index;
+    }
+
+    /**
+     * Swaps two sliders in the store and keeps the id index in step.
+     */
+    private void swapSlots(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        store.swap(a, b);
+        indexById.put(store.getId(a), a);
+        indexById.put(store.getId(b), b);
+        if (store.isFramed(a) || store.isFramed(b)) {
+            // A framed slider may have moved past the range the next frame scans
+            frameLimit = Math.max(frameLimit, Math.max(a, b) + 1);
+        }
+    }
+
+    private void addDirty(int added) {
+        if (dirtyCount == 0 && added > 0) {
+            dirtySince = System.nanoTime();
+        }
+        dirtyCount += added;
+    }
+
+    private void clearDirty(int index) {
+        if (store.isDirty(index)) {
+            store.setDirty(index, false);
+            dirtyCount--;
+        }
+    }
+}
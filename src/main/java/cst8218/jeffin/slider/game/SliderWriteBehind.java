@@ -0,0 +1,124 @@
+package cst8218.jeffin.slider.game;
+
+import cst8218.jeffin.slider.ejb.SliderFacade;
+import cst8218.jeffin.slider.entity.Slider;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind stage between the in-memory {@link SliderWorld} and the database.
+ *
+ * Every flush drains the sliders that changed since the previous flush and
+ * saves them in transactions of at most batchSize sliders. Repeated changes to
+ * the same slider are coalesced by the world's dirty set, so a slider costs
+ * one row per flush however many ticks it moved. A flush never drains more
+ * than maxPending sliders; anything beyond that stays dirty and keeps
+ * coalescing until the database catches up, which is the backpressure.
+ * Every batch that changes rows is counted on the table's {@link ChangeCounter}.
+ *
+ * @author leoje
+ */
+public class SliderWriteBehind {
+
+    private final SliderWorld world;
+    private final SliderFacade sliderFacade;
+    private final ChangeCounter changes;
+    private final int batchSize;
+    private final int maxPending;
+
+    // Metrics, written by the flushing thread and read by anyone
+    private volatile long flushCount;
+    private volatile long rowsWritten;
+    private volatile long failedBatches;
+    private volatile int lastBatchSize;
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile long lastLagMillis;
+
+    /**
+     * @param world the world to drain
+     * @param sliderFacade the facade used to save the sliders
+     * @param changes the counter to bump when rows are written
+     * @param batchSize the most sliders saved in one transaction
+     * @param maxPending the most sliders drained in one flush
+     */
+    public SliderWriteBehind(SliderWorld world, SliderFacade sliderFacade, ChangeCounter changes,
+            int batchSize, int maxPending) {
+        this.world = world;
+        this.sliderFacade = sliderFacade;
+        this.changes = changes;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Saves the sliders that changed since the last flush.
+     *
+     * @return the number of sliders drained from the world
+     */
+    public synchronized int flush() {
+        long start = System.nanoTime();
+        lastLagMillis = world.getDirtyAgeMillis();
+        List<Slider> drained = world.drainDirty(maxPending);
+        if (drained.isEmpty()) {
+            return 0;
+        }
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<Slider> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (Slider slider : batch) {
+                ids.add(slider.getId());
+            }
+            try {
+                int written = sliderFacade.saveState(batch);
+                // Committed: the shared cache still holds the rows as they were
+                sliderFacade.evict(ids);
+                if (written > 0) {
+                    changes.changed();
+                }
+                rowsWritten += written;
+            } catch (RuntimeException exception) {
+                // Keep the batch for the next flush; the world still has the latest values
+                failedBatches++;
+                world.markDirty(ids);
+                exception.printStackTrace();
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        flushCount++;
+        lastBatchSize = drained.size();
+        lastFlushMillis = elapsed;
+        maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+        return drained.size();
+    }
+
+    /**
+     * Flushes until nothing is left to save, or until a flush stops making
+     * progress because the database is failing.
+     */
+    public synchronized void flushAll() {
+        long failuresBefore = failedBatches;
+        while (world.getDirtyCount() > 0 && flush() > 0 && failedBatches == failuresBefore) {
+            // keep flushing
+        }
+    }
+
+    /**
+     * @return the write-behind metrics, in a form ready to be serialized
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("pending", world.getDirtyCount());
+        metrics.put("lagMillis", world.getDirtyAgeMillis());
+        metrics.put("lagAtLastFlushMillis", lastLagMillis);
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("lastFlushMillis", lastFlushMillis);
+        metrics.put("maxFlushMillis", maxFlushMillis);
+        metrics.put("flushCount", flushCount);
+        metrics.put("rowsWritten", rowsWritten);
+        metrics.put("failedBatches", failedBatches);
+        return metrics;
+    }
+}
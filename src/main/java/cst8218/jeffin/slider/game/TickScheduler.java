@@ -0,0 +1,173 @@
+package cst8218.jeffin.slider.game;
+
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a tick action at a fixed rate on a managed scheduler.
+ *
+ * Tick n is due at start + n * period no matter how long earlier ticks took,
+ * so the rate does not drift as the work grows. When an invocation finds it
+ * is more than one tick behind, the overrun policy decides what happens to
+ * the missed ticks: CATCH_UP hands up to maxCatchUp of them to the action in
+ * a single call, SKIP drops all but the current one. Ticks that are dropped
+ * are counted as missed.
+ *
+ * @author leoje
+ */
+public class TickScheduler implements Runnable {
+
+    /**
+     * The work done on each invocation.
+     */
+    public interface TickAction {
+
+        /**
+         * @param tick the number of the first tick to run
+         * @param count how many ticks to run, at least 1
+         */
+        void run(long tick, int count);
+    }
+
+    /**
+     * What to do with ticks that were missed because earlier ones overran.
+     */
+    public enum OverrunPolicy {
+        CATCH_UP,
+        SKIP
+    }
+
+    private final ManagedScheduledExecutorService executor;
+    private final long periodNanos;
+    private final OverrunPolicy policy;
+    private final int maxCatchUp;
+    private final TickAction tickAction;
+
+    private ScheduledFuture<?> future;
+    private volatile long startNanos;
+    private volatile long ticks;  // tick slots that were run or skipped
+
+    // Metrics, written by the ticking thread only
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long totalTickNanos;
+    private volatile long ticksRun;
+    private volatile long overruns;
+    private volatile long missedTicks;
+    private volatile long caughtUpTicks;
+    private volatile long lastJitterNanos;
+    private volatile long maxJitterNanos;
+    private volatile long totalJitterNanos;
+    private volatile long invocations;
+
+    /**
+     * @param executor the scheduler to run on
+     * @param ticksPerSecond the tick rate
+     * @param policy what to do with missed ticks
+     * @param maxCatchUp the most ticks run in one go under CATCH_UP
+     * @param tickAction the work to do, given the tick number and tick count
+     */
+    public TickScheduler(ManagedScheduledExecutorService executor, double ticksPerSecond,
+            OverrunPolicy policy, int maxCatchUp, TickAction tickAction) {
+        this.executor = executor;
+        this.periodNanos = (long) (1_000_000_000L / ticksPerSecond);
+        this.policy = policy;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.tickAction = tickAction;
+    }
+
+    /**
+     * Starts ticking from tick 0.
+     */
+    public synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        ticks = 0;
+        future = executor.scheduleAtFixedRate(this, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops ticking. A tick already running is allowed to finish.
+     */
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            long now = System.nanoTime();
+            long due = (now - startNanos) / periodNanos + 1;  // slots whose start time has passed
+            long behind = due - ticks;
+            if (behind <= 0) {
+                // A delayed execution queued up behind an overrun; the work is already done
+                return;
+            }
+            invocations++;
+            long jitter = now - (startNanos + (due - 1) * periodNanos);
+            lastJitterNanos = jitter;
+            maxJitterNanos = Math.max(maxJitterNanos, jitter);
+            totalJitterNanos += jitter;
+
+            int toRun = policy == OverrunPolicy.CATCH_UP ? (int) Math.min(behind, maxCatchUp) : 1;
+            if (behind > toRun) {
+                missedTicks += behind - toRun;
+                ticks += behind - toRun;
+            }
+            if (toRun > 1) {
+                caughtUpTicks += toRun - 1;
+            }
+            long tickStart = System.nanoTime();
+            tickAction.run(ticks, toRun);
+            ticks += toRun;
+            long elapsed = System.nanoTime() - tickStart;
+            lastTickNanos = elapsed;
+            maxTickNanos = Math.max(maxTickNanos, elapsed);
+            totalTickNanos += elapsed;
+            ticksRun += toRun;
+            if (elapsed > periodNanos) {
+                overruns++;
+            }
+        } catch (RuntimeException exception) {
+            // Never let an exception escape, it would cancel all future ticks
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the number of the next tick to run
+     */
+    public long getTick() {
+        return ticks;
+    }
+
+    /**
+     * @return tick duration, jitter and missed tick counts, ready to be serialized
+     */
+    public Map<String, Object> getMetrics() {
+        long calls = invocations;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("policy", policy.name());
+        metrics.put("periodMicros", periodNanos / 1000);
+        metrics.put("tick", ticks);
+        metrics.put("ticksRun", ticksRun);
+        metrics.put("lastTickMicros", lastTickNanos / 1000);
+        metrics.put("avgTickMicros", calls == 0 ? 0 : totalTickNanos / calls / 1000);
+        metrics.put("maxTickMicros", maxTickNanos / 1000);
+        metrics.put("lastJitterMicros", lastJitterNanos / 1000);
+        metrics.put("avgJitterMicros", calls == 0 ? 0 : totalJitterNanos / calls / 1000);
+        metrics.put("maxJitterMicros", maxJitterNanos / 1000);
+        metrics.put("overruns", overruns);
+        metrics.put("caughtUpTicks", caughtUpTicks);
+        metrics.put("missedTicks", missedTicks);
+        return metrics;
+    }
+}
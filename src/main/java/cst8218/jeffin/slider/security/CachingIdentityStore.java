@@ -0,0 +1,102 @@
+package cst8218.jeffin.slider.security;
+
+import cst8218.jeffin.slider.ejb.AppUserFacade;
+import jakarta.ejb.EJB;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.credential.Credential;
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import jakarta.security.enterprise.identitystore.IdentityStore;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks callers against the AppUser table, remembering successful logins.
+ *
+ * Replaces the DatabaseIdentityStoreDefinition, which ran its caller and
+ * groups queries and a full PBKDF2 verification on every Basic-auth request.
+ * A caller is looked up and verified once; after that the same password is
+ * matched against the {@link CredentialCache} until the entry expires or
+ * AppUserController invalidates it.
+ *
+ * @author leoje
+ */
+@ApplicationScoped
+public class CachingIdentityStore implements IdentityStore {
+
+    // Cache settings, overridable with system properties
+    private static final int CACHE_SIZE = Integer.getInteger("slider.auth.cacheSize", 1000);
+    private static final long CACHE_TTL_MS = Long.getLong("slider.auth.cacheTtlMs", 60000);
+
+    @EJB
+    private AppUserFacade appUserFacade;
+
+    @Inject
+    private PasswordHashService passwordHashService;
+
+    private final CredentialCache cache = new CredentialCache(CACHE_SIZE, CACHE_TTL_MS);
+
+    @Override
+    public CredentialValidationResult validate(Credential credential) {
+        if (!(credential instanceof UsernamePasswordCredential)) {
+            return CredentialValidationResult.NOT_VALIDATED_RESULT;
+        }
+        UsernamePasswordCredential login = (UsernamePasswordCredential) credential;
+        String caller = login.getCaller();
+        char[] password = login.getPassword().getValue();
+
+        Set<String> groups = cache.match(caller, password);
+        if (groups != null) {
+            return new CredentialValidationResult(caller, groups);
+        }
+
+        // An invalidation during the lookup means the row read may already be stale
+        long generation = cache.generation();
+        Object[] row = appUserFacade.findCredentials(caller);
+        if (row == null || row[0] == null || !passwordHashService.verify(password, (String) row[0])) {
+            return CredentialValidationResult.INVALID_RESULT;
+        }
+        groups = row[1] == null ? Collections.<String>emptySet() : Collections.singleton((String) row[1]);
+        cache.put(caller, password, groups, generation);
+        return new CredentialValidationResult(caller, groups);
+    }
+
+    @Override
+    public int priority() {
+        return 10;
+    }
+
+    /**
+     * Forgets a caller's cached login, so their next request is checked
+     * against the table again.
+     *
+     * @param caller the caller name
+     */
+    public void invalidate(String caller) {
+        cache.invalidate(caller);
+    }
+
+    /**
+     * Forgets every cached login.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return cache size, hits and misses, ready to be serialized
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        metrics.put("cachedCallers", cache.size());
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return metrics;
+    }
+}
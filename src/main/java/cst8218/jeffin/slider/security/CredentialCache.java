@@ -0,0 +1,192 @@
+package cst8218.jeffin.slider.security;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers recent successful logins so a caller sending the same password
+ * again is not put through PBKDF2 every request.
+ *
+ * Only a salted SHA-256 digest of the password is kept, never the password
+ * itself. Entries live at most ttlMillis and the cache holds at most
+ * maxEntries callers, dropping the least recently used first. Failed logins
+ * are never cached. A login looked up before an invalidation is not cached
+ * after it: take {@link #generation()} before the lookup and pass it to
+ * put.
+ *
+ * @author leoje
+ */
+public class CredentialCache {
+
+    private static final class CachedLogin {
+
+        final byte[] digest;
+        final Set<String> groups;
+        final long expiresAt;
+
+        CachedLogin(byte[] digest, Set<String> groups, long expiresAt) {
+            this.digest = digest;
+            this.groups = groups;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final byte[] salt = new byte[16];  // Differs per cache, so digests are useless outside this process
+    private final Map<String, CachedLogin> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long generation;  // Bumped by every invalidation; guarded by entries
+
+    /**
+     * @param maxEntries the most callers remembered at once
+     * @param ttlMillis how long a login is remembered, in milliseconds
+     */
+    public CredentialCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        new SecureRandom().nextBytes(salt);
+        // Access order makes the eldest entry the least recently used one
+        this.entries = new LinkedHashMap<String, CachedLogin>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLogin> eldest) {
+                return size() > CredentialCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up a remembered login.
+     *
+     * @param caller the caller name
+     * @param password the password the caller sent
+     * @return the caller's groups if the same password was accepted within
+     * the TTL, otherwise null
+     */
+    public Set<String> match(String caller, char[] password) {
+        CachedLogin entry;
+        synchronized (entries) {
+            entry = entries.get(caller);
+            if (entry != null && System.currentTimeMillis() >= entry.expiresAt) {
+                entries.remove(caller);
+                entry = null;
+            }
+        }
+        if (entry == null || !MessageDigest.isEqual(entry.digest, digest(password))) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.groups;
+    }
+
+    /**
+     * Remembers a login that was just verified.
+     *
+     * @param caller the caller name
+     * @param password the password that was accepted
+     * @param groups the caller's groups
+     */
+    public void put(String caller, char[] password, Set<String> groups) {
+        put(caller, password, groups, generation());
+    }
+
+    /**
+     * Remembers a login that was verified against what the table held at
+     * the given generation, unless something was invalidated since.
+     *
+     * @param caller the caller name
+     * @param password the password that was accepted
+     * @param groups the caller's groups
+     * @param generation what {@link #generation()} returned before the lookup
+     * @return whether the login was remembered
+     */
+    public boolean put(String caller, char[] password, Set<String> groups, long generation) {
+        CachedLogin entry = new CachedLogin(digest(password), Collections.unmodifiableSet(new HashSet<>(groups)),
+                System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            if (generation != this.generation) {
+                return false;
+            }
+            entries.put(caller, entry);
+            return true;
+        }
+    }
+
+    /**
+     * @return a number that changes on every invalidation
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Forgets one caller, e.g. after their password or group changed.
+     *
+     * @param caller the caller name
+     */
+    public void invalidate(String caller) {
+        synchronized (entries) {
+            entries.remove(caller);
+            generation++;
+        }
+    }
+
+    /**
+     * Forgets every caller.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+    }
+
+    /**
+     * @return the number of callers remembered
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private byte[] digest(char[] password) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(salt);
+            sha256.update(bytes);
+            return sha256.digest();
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(exception);
+        } finally {
+            if (bytes.hasArray()) {
+                Arrays.fill(bytes.array(), (byte) 0);
+            }
+        }
+    }
+}
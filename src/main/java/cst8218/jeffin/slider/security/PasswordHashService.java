@@ -0,0 +1,71 @@
+package cst8218.jeffin.slider.security;
+
+import cst8218.jeffin.slider.entity.AppUser;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.identitystore.Pbkdf2PasswordHash;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hashes and verifies AppUser passwords with one shared, initialized
+ * Pbkdf2PasswordHash.
+ *
+ * New hashes use the provider's default algorithm and iterations unless
+ * overridden below; every hash records its own parameters, so changing them
+ * leaves existing passwords verifiable.
+ *
+ * @author leoje
+ */
+@ApplicationScoped
+public class PasswordHashService {
+
+    // Hash settings from system properties; unset, the provider's defaults apply
+    private static final String ALGORITHM = System.getProperty("slider.password.algorithm");
+    private static final Integer ITERATIONS = Integer.getInteger("slider.password.iterations");
+
+    @Inject
+    private Pbkdf2PasswordHash passwordHash;
+
+    @PostConstruct
+    public void init() {
+        Map<String, String> parameters = new HashMap<>();
+        if (ALGORITHM != null) {
+            parameters.put("Pbkdf2PasswordHash.Algorithm", ALGORITHM);
+        }
+        if (ITERATIONS != null) {
+            parameters.put("Pbkdf2PasswordHash.Iterations", ITERATIONS.toString());
+        }
+        passwordHash.initialize(parameters);
+    }
+
+    /**
+     * @param password the raw password
+     * @return its hash, in the form stored in AppUser
+     */
+    public String hash(char[] password) {
+        return passwordHash.generate(password);
+    }
+
+    /**
+     * @param password the password a caller sent
+     * @param hash the stored hash
+     * @return whether they match
+     */
+    public boolean verify(char[] password, String hash) {
+        return passwordHash.verify(password, hash);
+    }
+
+    /**
+     * Hashes the raw password set on a user, if there is one.
+     *
+     * @param user the user about to be saved
+     */
+    public void hashPassword(AppUser user) {
+        String raw = user.getRawPassword();
+        if (raw != null && !raw.isEmpty()) {
+            user.setPasswordHash(hash(raw.toCharArray()));
+        }
+    }
+}
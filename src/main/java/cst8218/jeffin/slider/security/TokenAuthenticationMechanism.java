@@ -0,0 +1,95 @@
+package cst8218.jeffin.slider.security;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.AuthenticationStatus;
+import jakarta.security.enterprise.authentication.mechanism.http.HttpAuthenticationMechanism;
+import jakarta.security.enterprise.authentication.mechanism.http.HttpMessageContext;
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import jakarta.security.enterprise.identitystore.IdentityStoreHandler;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Authenticates requests by bearer token or by Basic credentials.
+ *
+ * A Bearer token from {@link TokenService} is checked by its signature
+ * alone, without the database. Basic credentials go to the identity store
+ * as before, so browsers and existing clients keep working, and are what
+ * the token endpoint exchanges for a token. Either way the validated caller
+ * is left in the {@link #CALLER} request attribute.
+ *
+ * @author leoje
+ */
+@ApplicationScoped
+public class TokenAuthenticationMechanism implements HttpAuthenticationMechanism {
+
+    /**
+     * Request attribute holding the CredentialValidationResult of the caller.
+     */
+    public static final String CALLER = TokenAuthenticationMechanism.class.getName() + ".caller";
+
+    private static final String REALM = "ApplicationRealm";
+
+    @Inject
+    private IdentityStoreHandler identityStoreHandler;
+
+    @Inject
+    private TokenService tokenService;
+
+    @Override
+    public AuthenticationStatus validateRequest(HttpServletRequest request, HttpServletResponse response,
+            HttpMessageContext context) {
+        String authorization = request.getHeader("Authorization");
+
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            CredentialValidationResult result = tokenService.verify(authorization.substring(7).trim());
+            if (result == null) {
+                response.setHeader("WWW-Authenticate", "Bearer realm=\"" + REALM + "\", error=\"invalid_token\"");
+                return context.responseUnauthorized();
+            }
+            request.setAttribute(CALLER, result);
+            return context.notifyContainerAboutLogin(result);
+        }
+
+        if (authorization != null && authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            UsernamePasswordCredential credential = parseBasic(authorization.substring(6).trim());
+            if (credential != null) {
+                CredentialValidationResult result = identityStoreHandler.validate(credential);
+                if (result.getStatus() == CredentialValidationResult.Status.VALID) {
+                    request.setAttribute(CALLER, result);
+                    return context.notifyContainerAboutLogin(result);
+                }
+            }
+            return challenge(response, context);
+        }
+
+        return context.isProtected() ? challenge(response, context) : context.doNothing();
+    }
+
+    private static AuthenticationStatus challenge(HttpServletResponse response, HttpMessageContext context) {
+        // Browsers prompt for Basic credentials; token clients know to get a token first
+        response.setHeader("WWW-Authenticate", "Basic realm=\"" + REALM + "\"");
+        return context.responseUnauthorized();
+    }
+
+    /**
+     * @return the credential in a Basic header value, or null if it is malformed
+     */
+    private static UsernamePasswordCredential parseBasic(String encoded) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+        return new UsernamePasswordCredential(decoded.substring(0, colon), decoded.substring(colon + 1));
+    }
+}
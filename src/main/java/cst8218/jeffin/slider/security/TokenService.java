@@ -0,0 +1,177 @@
+package cst8218.jeffin.slider.security;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issues and checks short-lived bearer tokens for the REST API.
+ *
+ * A token is base64url(payload) + "." + base64url(HMAC-SHA256 of payload),
+ * where the payload is the lines issued-at, expires-at (both in ms), caller
+ * and then one line per group. It is checked with the key alone, so a
+ * request carrying one costs an HMAC instead of a database lookup and
+ * PBKDF2.
+ *
+ * The key comes from slider.auth.tokenKey (base64), which every server
+ * sharing tokens has to be given; without it a random key is made at
+ * startup and tokens stop working on restart. Tokens of a caller, or of
+ * everyone, can be revoked on this server; anything else is bounded by the
+ * token lifetime.
+ *
+ * @author leoje
+ */
+@ApplicationScoped
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();  // Tokens issued up to then are rejected, by caller
+    private volatile long allRevokedAt;
+
+    public TokenService() {
+        this(configuredKey(), Long.getLong("slider.auth.tokenTtlSeconds", 900) * 1000);
+    }
+
+    /**
+     * @param key the HMAC key
+     * @param ttlMillis how long a token is valid, in milliseconds
+     */
+    public TokenService(byte[] key, long ttlMillis) {
+        this.key = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * Issues a token for a caller who has just been authenticated.
+     *
+     * @param caller the caller name
+     * @param groups the caller's groups
+     * @return the token
+     */
+    public String issue(String caller, Set<String> groups) {
+        long now = System.currentTimeMillis();
+        StringBuilder lines = new StringBuilder().append(now).append('\n').append(now + ttlMillis);
+        for (String line : concat(caller, groups)) {
+            if (line.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Caller and group names cannot contain line breaks.");
+            }
+            lines.append('\n').append(line);
+        }
+        byte[] payload = lines.toString().getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Checks a token's signature, expiry and revocation.
+     *
+     * @param token the token as sent
+     * @return the caller and groups it carries, or null if it is not valid
+     */
+    public CredentialValidationResult verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(payload))) {
+            return null;
+        }
+
+        // Signed by this key, so the payload is well formed
+        String[] lines = new String(payload, StandardCharsets.UTF_8).split("\n", -1);
+        long issuedAt = Long.parseLong(lines[0]);
+        String caller = lines[2];
+        if (System.currentTimeMillis() >= Long.parseLong(lines[1])
+                || issuedAt <= allRevokedAt || issuedAt <= revokedAt.getOrDefault(caller, Long.MIN_VALUE)) {
+            return null;
+        }
+        Set<String> groups = new HashSet<>(Arrays.asList(lines).subList(3, lines.length));
+        return new CredentialValidationResult(caller, groups);
+    }
+
+    /**
+     * Rejects every token issued to a caller so far.
+     *
+     * @param caller the caller name
+     */
+    public void revoke(String caller) {
+        long now = System.currentTimeMillis();
+        revokedAt.put(caller, now);
+        // Tokens issued before (now - ttl) have expired anyway
+        for (Iterator<Long> times = revokedAt.values().iterator(); times.hasNext();) {
+            if (times.next() < now - ttlMillis) {
+                times.remove();
+            }
+        }
+    }
+
+    /**
+     * Rejects every token issued so far.
+     */
+    public void revokeAll() {
+        allRevokedAt = System.currentTimeMillis();
+        revokedAt.clear();
+    }
+
+    /**
+     * @return how long a token is valid, in seconds
+     */
+    public long getTtlSeconds() {
+        return ttlMillis / 1000;
+    }
+
+    private static List<String> concat(String caller, Set<String> groups) {
+        List<String> lines = new ArrayList<>(groups.size() + 1);
+        lines.add(caller);
+        lines.addAll(groups);
+        return lines;
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // A Mac is not thread-safe; a new one costs microseconds
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException exception) {
+            // Every Java platform is required to provide HmacSHA256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static byte[] configuredKey() {
+        String configured = System.getProperty("slider.auth.tokenKey");
+        if (configured != null && !configured.isEmpty()) {
+            return Base64.getDecoder().decode(configured);
+        }
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
@@ -0,0 +1,36 @@
+package cst8218.jeffin.slider.service;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Runs an action once the current transaction commits, and not at all if it
+ * rolls back.
+ *
+ * @author leoje
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * @param transactions the registry of the current transaction
+     * @param action what to run after a successful commit
+     */
+    static void run(TransactionSynchronizationRegistry transactions, Runnable action) {
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
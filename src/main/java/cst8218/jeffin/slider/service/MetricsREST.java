@@ -0,0 +1,85 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.game.SliderGame;
+import cst8218.jeffin.slider.security.CachingIdentityStore;
+import cst8218.jeffin.slider.util.CacheStatistics;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Read-only view of the server's runtime metrics.
+ *
+ * @author leoje
+ */
+@Stateless
+@Path("metrics")
+@RolesAllowed({"RestFullGroup", "Admin"})
+public class MetricsREST {
+
+    @EJB
+    private SliderGame sliderGame;
+
+    @EJB
+    private SliderStreamHub streamHub;
+
+    @EJB
+    private SliderSocketHub socketHub;
+
+    @Inject
+    private CachingIdentityStore identityStore;
+
+    @GET
+    @Path("ticks")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ticks() {
+        // Tick duration, jitter and missed ticks of the game loop
+        return Response.ok(sliderGame.getTickMetrics()).build();
+    }
+
+    @GET
+    @Path("persistence")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response persistence() {
+        // Lag, batch size and flush time of the game's write-behind stage
+        return Response.ok(sliderGame.getPersistenceMetrics()).build();
+    }
+
+    @GET
+    @Path("stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stream() {
+        // Subscribers of the live slider stream and how many were dropped for lagging
+        return Response.ok(streamHub.getMetrics()).build();
+    }
+
+    @GET
+    @Path("socket")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response socket() {
+        // Viewers of the binary WebSocket, those waiting on acknowledgements and bytes sent
+        return Response.ok(socketHub.getMetrics()).build();
+    }
+
+    @GET
+    @Path("cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cache() {
+        // Shared entity cache hits and misses of lookups by id
+        return Response.ok(CacheStatistics.getMetrics()).build();
+    }
+
+    @GET
+    @Path("auth")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response auth() {
+        // Logins answered from the identity store's cache instead of PBKDF2
+        return Response.ok(identityStore.getMetrics()).build();
+    }
+}
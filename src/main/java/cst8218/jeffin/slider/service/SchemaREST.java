@@ -0,0 +1,149 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.ejb.SchemaMigrator;
+import cst8218.jeffin.slider.entity.Slider;
+import jakarta.annotation.Resource;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Schema maintenance for administrators: what the startup migration did,
+ * and how the indexed query patterns perform.
+ *
+ * The benchmark runs each pattern a number of times on one connection and
+ * reports the mean time, then runs it once more with Derby's runtime
+ * statistics on to show the plan the optimizer chose, i.e. which index,
+ * if any, it used.
+ *
+ * @author leoje
+ */
+@Stateless
+@Path("admin/schema")
+@RolesAllowed("Admin")
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class SchemaREST {
+
+    private static final int MAX_RUNS = 1000;
+
+    // The query patterns the indexes serve: name, SQL and parameters
+    private static final Object[][] BENCHMARKS = {
+        {"xRange", "SELECT * FROM SLIDER WHERE X BETWEEN ? AND ?", new Object[]{0, Slider.X_LIMIT / 10}},
+        {"yRange", "SELECT * FROM SLIDER WHERE Y BETWEEN ? AND ?", new Object[]{0, Slider.Y_LIMIT / 10}},
+        {"active", "SELECT * FROM SLIDER WHERE MAXTRAVEL > ?", new Object[]{0}},
+        {"listPageBySize", "SELECT * FROM SLIDER WHERE SIZE >= ? AND (SIZE > ? OR ID > ?) ORDER BY SIZE, ID FETCH FIRST 11 ROWS ONLY",
+            new Object[]{Slider.INITIAL_SIZE, Slider.INITIAL_SIZE, 0L}},
+        {"callerLookup", "SELECT PASSWORD, GROUPNAME FROM APPUSER WHERE USERID = ?", new Object[]{"admin"}}
+    };
+
+    @EJB
+    private SchemaMigrator schemaMigrator;
+
+    @Resource(lookup = "java:comp/DefaultDataSource")
+    private DataSource dataSource;
+
+    @GET
+    @Path("migrations")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response migrations() {
+        // DDL the startup migration ran; empty once the database is up to date
+        return Response.ok(schemaMigrator.getApplied()).build();
+    }
+
+    @GET
+    @Path("plans")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response plans(@QueryParam("runs") @DefaultValue("20") int runs) {
+        if (runs < 1 || runs > MAX_RUNS) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("runs must be between 1 and " + MAX_RUNS).build();
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (Object[] benchmark : BENCHMARKS) {
+                results.add(benchmark(connection, (String) benchmark[0], (String) benchmark[1], (Object[]) benchmark[2], runs));
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return Response.serverError().entity(exception.getMessage()).build();
+        }
+        return Response.ok(results).build();
+    }
+
+    private static Map<String, Object> benchmark(Connection connection, String name, String sql,
+            Object[] parameters, int runs) throws SQLException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("query", name);
+        result.put("sql", sql);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            int rows = run(statement);  // Warms the statement cache and the pages up
+            long started = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                run(statement);
+            }
+            result.put("rows", rows);
+            result.put("runs", runs);
+            result.put("meanMicros", (System.nanoTime() - started) / 1000 / runs);
+            result.put("plan", plan(connection, statement));
+        }
+        return result;
+    }
+
+    private static int run(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static String plan(Connection connection, PreparedStatement statement) {
+        // Runtime statistics are kept per connection, for its last statement
+        try {
+            setRuntimeStatistics(connection, true);
+            try {
+                run(statement);
+                try (PreparedStatement statistics = connection.prepareStatement("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()");
+                        ResultSet resultSet = statistics.executeQuery()) {
+                    return resultSet.next() ? resultSet.getString(1) : null;
+                }
+            } finally {
+                setRuntimeStatistics(connection, false);
+            }
+        } catch (SQLException exception) {
+            // Not Derby, or statistics not allowed
+            return "unavailable: " + exception.getMessage();
+        }
+    }
+
+    private static void setRuntimeStatistics(Connection connection, boolean on) throws SQLException {
+        try (CallableStatement call = connection.prepareCall("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(?)")) {
+            call.setInt(1, on ? 1 : 0);
+            call.execute();
+        }
+    }
+}
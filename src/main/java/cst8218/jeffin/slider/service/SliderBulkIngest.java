@@ -0,0 +1,187 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.ejb.SliderCountService;
+import cst8218.jeffin.slider.ejb.SliderFacade;
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderGame;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One bulk insert of sliders, fed item by item as they are parsed.
+ *
+ * Every item is validated as it arrives; valid ones are collected and
+ * inserted batchSize at a time, each batch in its own transaction, so memory
+ * stays bounded by one batch however long the input is. Every item gets a
+ * result: CREATED with its id, INVALID with the reasons, or FAILED when its
+ * batch could not be written.
+ *
+ * @author leoje
+ */
+public class SliderBulkIngest {
+
+    private final SliderFacade sliderFacade;
+    private final SliderGame sliderGame;
+    private final SliderCountService sliderCount;
+    private final Validator validator;
+    private final int batchSize;
+
+    private final List<Slider> batch = new ArrayList<>();
+    private final List<Integer> batchIndexes = new ArrayList<>();
+    private final JsonArrayBuilder results = Json.createArrayBuilder();
+    private int nextIndex;
+    private int created;
+    private int invalid;
+    private int failed;
+
+    /**
+     * @param sliderFacade the facade that inserts the batches
+     * @param sliderGame the game to hand the new sliders to
+     * @param sliderCount the count to add the new sliders to
+     * @param validator checks each item before it is queued
+     * @param batchSize the most sliders inserted in one transaction
+     */
+    public SliderBulkIngest(SliderFacade sliderFacade, SliderGame sliderGame, SliderCountService sliderCount,
+            Validator validator, int batchSize) {
+        this.sliderFacade = sliderFacade;
+        this.sliderGame = sliderGame;
+        this.sliderCount = sliderCount;
+        this.validator = validator;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Validates one parsed item and queues it for insertion.
+     *
+     * @param value the item as parsed
+     */
+    public void accept(JsonValue value) {
+        int index = nextIndex++;
+        if (value.getValueType() != JsonValue.ValueType.OBJECT) {
+            reject(index, "Item is not a JSON object.");
+            return;
+        }
+        Slider slider;
+        try {
+            slider = toSlider(value.asJsonObject());
+        } catch (ClassCastException | ArithmeticException exception) {
+            reject(index, "Slider fields must be whole numbers.");
+            return;
+        }
+        Set<ConstraintViolation<Slider>> violations = validator.validate(slider);
+        if (!violations.isEmpty()) {
+            List<String> reasons = new ArrayList<>();
+            for (ConstraintViolation<Slider> violation : violations) {
+                reasons.add(violation.getPropertyPath() + " " + violation.getMessage());
+            }
+            reject(index, reasons.toArray(new String[0]));
+            return;
+        }
+        batch.add(slider);
+        batchIndexes.add(index);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Records an item that could not even be parsed, e.g. a bad NDJSON line.
+     *
+     * @param reason what was wrong with it
+     */
+    public void reject(String reason) {
+        reject(nextIndex++, reason);
+    }
+
+    /**
+     * Inserts what is still queued and returns the outcome of every item.
+     *
+     * @return {"created":n,"invalid":n,"failed":n,"results":[...]}
+     */
+    public JsonObject finish() {
+        flush();
+        return Json.createObjectBuilder()
+                .add("created", created)
+                .add("invalid", invalid)
+                .add("failed", failed)
+                .add("results", results)
+                .build();
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sliderFacade.createAll(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                Slider slider = batch.get(i);
+                sliderGame.sliderSaved(slider);
+                results.add(Json.createObjectBuilder()
+                        .add("index", batchIndexes.get(i))
+                        .add("status", "CREATED")
+                        .add("id", slider.getId()));
+            }
+            created += batch.size();
+            sliderCount.sliderCreated(batch.size());
+        } catch (RuntimeException exception) {
+            // The whole batch was rolled back; report each item and go on with the next batch
+            exception.printStackTrace();
+            for (Integer index : batchIndexes) {
+                results.add(Json.createObjectBuilder()
+                        .add("index", index)
+                        .add("status", "FAILED")
+                        .add("errors", Json.createArrayBuilder().add("The batch could not be saved.")));
+            }
+            failed += batch.size();
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+
+    private void reject(int index, String... reasons) {
+        JsonArrayBuilder errors = Json.createArrayBuilder();
+        for (String reason : reasons) {
+            errors.add(reason);
+        }
+        JsonObjectBuilder result = Json.createObjectBuilder()
+                .add("index", index)
+                .add("status", "INVALID")
+                .add("errors", errors);
+        results.add(result);
+        invalid++;
+    }
+
+    /**
+     * Builds a new slider from an item. Any id is ignored; missing motion
+     * fields keep the entity's defaults, missing positions fail validation.
+     */
+    private static Slider toSlider(JsonObject item) {
+        Slider slider = new Slider();
+        slider.setSize(intOr(item, "size", slider.getSize()));
+        slider.setX(intOr(item, "x", null));
+        slider.setY(intOr(item, "y", null));
+        slider.setMaxTravel(intOr(item, "maxTravel", null));
+        slider.setCurrentTravel(intOr(item, "currentTravel", slider.getCurrentTravel()));
+        slider.setMvtDirection(intOr(item, "mvtDirection", slider.getMvtDirection()));
+        slider.setDirChangeCount(intOr(item, "dirChangeCount", slider.getDirChangeCount()));
+        return slider;
+    }
+
+    private static Integer intOr(JsonObject item, String name, Integer fallback) {
+        JsonValue value = item.get(name);
+        if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+            return fallback;
+        }
+        return ((JsonNumber) value).intValueExact();
+    }
+}
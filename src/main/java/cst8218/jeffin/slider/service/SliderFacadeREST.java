@@ -4,34 +4,92 @@
  */
 package cst8218.jeffin.slider.service;
 
+import cst8218.jeffin.slider.ejb.SliderCountService;
+import cst8218.jeffin.slider.ejb.SliderFacade;
 import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderGame;
+import jakarta.annotation.Resource;
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParsingException;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
+ * REST access to the Slider table.
+ *
+ * A single slider is tagged with a strong ETag built from its id, version
+ * and motion fields; the game's motion writes do not bump the version, so
+ * the motion is spelled out in the tag to keep it unique per body.
+ * Collections are tagged from the game's change counter and carry its
+ * Last-Modified time, so an unchanged collection is answered with
+ * 304 Not Modified before any query runs. PUT and POST on a slider honour
+ * If-Match with 412 Precondition Failed; If-Match only compares the id and
+ * version, since the motion changes every tick and is not the client's to
+ * edit. An update that loses a race with another writer gets 409 Conflict.
+ *
+ * PATCH on the collection applies partial updates to many sliders in one
+ * transaction and reports a status per id.
+ *
+ * Large tables should be read with GET slider/page?after=&amp;limit=, which
+ * pages by id and links to the next page, rather than by offset.
  *
  * @author leoje
  */
 @Stateless
 @Path("slider")
 @RolesAllowed({"RestFullGroup", "Admin"})
-public class SliderFacadeREST extends AbstractFacade<Slider> {
+public class SliderFacadeREST {
     
     private static final Integer DEFAULT_SIZE = 50;
     private static final Integer DEFAULT_X = 0;
@@ -40,26 +98,50 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     private static final Integer DEFAULT_MAX_TRAVEL = 100;
     private static final Integer DEFAULT_DIR_CHANGE = 0;
     private static final Integer DEFAULT_DIRECTION = 1;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int BULK_BATCH_SIZE = Integer.getInteger("slider.bulk.batchSize", 500);  // Match eclipselink.jdbc.batch-writing.size
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_CHUNK_SIZE = Integer.getInteger("slider.export.chunkSize", 1000);
     
     @PersistenceContext(unitName = "my_persistence_unit")
     private EntityManager em;
 
-    @Override
-    protected EntityManager getEntityManager() {
-        return em;
-    }
-    
-    public SliderFacadeREST() {
-        super(Slider.class);
-    }
+    @EJB
+    private SliderGame sliderGame;  // Keeps the in-memory game state in step with REST writes
+
+    @EJB
+    private SliderCountService sliderCount;  // Answers count requests without COUNT(*)
+
+    @EJB
+    private SliderFacade sliderFacade;  // All reads and writes of the Slider table go through it
+
+    @Resource
+    private Validator validator;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    @Context
+    private Request request;  // Evaluates If-None-Match and If-Modified-Since
+
+    @Context
+    private HttpHeaders headers;
+
+    // Clients may keep responses but have to revalidate them before each use
+    private static final CacheControl REVALIDATE = revalidate();
 
     @POST
     @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response createPost(Slider entity, @Context UriInfo uriInfo) {
-        super.create(entity);
+        sliderFacade.create(entity);
+        em.flush();
+        afterCommit(() -> {
+            sliderGame.sliderSaved(entity);
+            sliderCount.sliderCreated();
+        });
         URI location = URI.create(uriInfo.getRequestUri().getPath() + "/" + entity.getId());
-        return Response.status(Response.Status.CREATED).location(location).entity(entity).build();
+        return Response.status(Response.Status.CREATED).location(location).entity(entity).tag(tagOf(entity)).build();
     }
 
 
@@ -68,11 +150,15 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     @Path("{id}")
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response remove(@PathParam("id") Long id) {
-        Slider slider = super.find(id);
+        Slider slider = sliderFacade.find(id);
         if (slider == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        super.remove(slider);
+        sliderFacade.remove(slider);
+        afterCommit(() -> {
+            sliderGame.sliderRemoved(id);
+            sliderCount.sliderRemoved();
+        });
         return Response.status(Response.Status.NO_CONTENT).build(); // Return 204 No Content
     }
 
@@ -81,19 +167,31 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response find(@PathParam("id") Long id) {
-        Slider slider = super.find(id);
+        Slider slider = sliderFacade.find(id);
         if (slider == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        return Response.ok(slider).build(); // Return 200 OK with the found entity
+        EntityTag tag = tagOf(slider);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.cacheControl(REVALIDATE).build(); // 304, the client's copy is current
+        }
+        return Response.ok(slider).tag(tag).cacheControl(REVALIDATE).build(); // Return 200 OK with the found entity
     }
 
     @GET
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response findAllSlider() {
-        List<Slider> sliders = super.findAll();
-        return Response.ok(sliders).build(); // Return 200 OK with the list of sliders
+        // Tag before querying, so a change during the query only makes the next request miss
+        EntityTag tag = collectionTag("all");
+        Date lastModified = lastModified();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, tag);
+        if (notModified != null) {
+            return notModified.cacheControl(REVALIDATE).build();
+        }
+        List<Slider> sliders = sliderFacade.findAll();
+        return Response.ok(sliders).tag(tag).lastModified(lastModified).cacheControl(REVALIDATE).build(); // Return 200 OK with the list of sliders
     }
 
     @GET
@@ -101,15 +199,207 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response findRange(@PathParam("from") Integer from, @PathParam("to") Integer to) {
-        List<Slider> sliders = super.findRange(new int[]{from, to});
-        return Response.ok(sliders).build();
+        EntityTag tag = collectionTag("range-" + from + "-" + to);
+        Date lastModified = lastModified();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, tag);
+        if (notModified != null) {
+            return notModified.cacheControl(REVALIDATE).build();
+        }
+        List<Slider> sliders = sliderFacade.findRange(new int[]{from, to});
+        return Response.ok(sliders).tag(tag).lastModified(lastModified).cacheControl(REVALIDATE).build();
+    }
+
+    @PATCH
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"RestFullGroup", "Admin"})
+    public Response patchSliders(List<Slider> patches) {
+        // Load every target with IN queries instead of one find() per id
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Slider patch : patches) {
+            if (patch.getId() != null) {
+                ids.add(patch.getId());
+            }
+        }
+        Map<Long, Slider> existing = new HashMap<>();
+        for (Slider slider : sliderFacade.findByIds(ids)) {
+            existing.put(slider.getId(), slider);
+        }
+
+        // Apply the non-null fields of each patch, reporting each one on its own
+        JsonArrayBuilder results = Json.createArrayBuilder();
+        Map<Long, Slider> updated = new HashMap<>();
+        Map<Long, Slider> applied = new HashMap<>();  // The patch behind each update
+        for (Slider patch : patches) {
+            JsonObjectBuilder result = Json.createObjectBuilder();
+            Slider target = patch.getId() == null ? null : existing.get(patch.getId());
+            if (patch.getId() == null) {
+                result.add("status", "INVALID").add("errors", Json.createArrayBuilder().add("id is required"));
+            } else if (target == null) {
+                result.add("id", patch.getId()).add("status", "NOT_FOUND");
+            } else if (patch.getVersion() != null && !patch.getVersion().equals(target.getVersion())) {
+                // The client patched an older version than the one stored
+                result.add("id", patch.getId()).add("status", "CONFLICT");
+            } else {
+                Slider candidate = new Slider();
+                candidate.setId(target.getId());
+                candidate.updateWithNonNullValues(target);
+                candidate.updateWithNonNullValues(patch);
+                Set<ConstraintViolation<Slider>> violations = validator.validate(candidate);
+                if (violations.isEmpty()) {
+                    catchUp(target);
+                    target.updateWithNonNullValues(patch);
+                    updated.put(target.getId(), target);
+                    applied.put(target.getId(), patch);
+                    result.add("id", patch.getId()).add("status", "UPDATED");
+                } else {
+                    JsonArrayBuilder errors = Json.createArrayBuilder();
+                    for (ConstraintViolation<Slider> violation : violations) {
+                        errors.add(violation.getPropertyPath() + " " + violation.getMessage());
+                    }
+                    result.add("id", patch.getId()).add("status", "INVALID").add("errors", errors);
+                }
+            }
+            results.add(result);
+        }
+
+        // One flush writes every change as a batch
+        try {
+            em.flush();
+        } catch (OptimisticLockException exception) {
+            return Response.status(Response.Status.CONFLICT)
+                           .entity("Some sliders were changed by someone else; nothing was updated.")
+                           .build();
+        }
+        if (!updated.isEmpty()) {
+            afterCommit(() -> {
+                for (Slider slider : updated.values()) {
+                    sliderGame.sliderEdited(slider, applied.get(slider.getId()));
+                }
+            });
+        }
+        return Response.ok(Json.createObjectBuilder()
+                .add("updated", updated.size())
+                .add("results", results)
+                .build()).build();
+    }
+
+    @POST
+    @Path("bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"RestFullGroup", "Admin"})
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)  // Each batch commits on its own
+    public Response createBulk(InputStream body) {
+        // A JSON array of sliders, read one element at a time rather than bound as a whole
+        SliderBulkIngest ingest = newIngest();
+        try (JsonParser parser = Json.createParser(body)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Expected a JSON array of sliders.").build();
+            }
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.END_ARRAY) {
+                    break;
+                }
+                ingest.accept(parser.getValue());
+            }
+        } catch (JsonParsingException exception) {
+            // Keep what was read before the error; the rest of the input is unusable
+            ingest.reject("Malformed JSON: " + exception.getMessage());
+        }
+        return Response.ok(ingest.finish()).build();
+    }
+
+    @POST
+    @Path("bulk")
+    @Consumes(NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"RestFullGroup", "Admin"})
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)  // Each batch commits on its own
+    public Response createBulkNdjson(InputStream body) {
+        // One slider per line; a bad line only fails that item
+        SliderBulkIngest ingest = newIngest();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    ingest.accept(Json.createReader(new StringReader(line)).readValue());
+                } catch (JsonException exception) {
+                    ingest.reject("Malformed JSON: " + exception.getMessage());
+                }
+            }
+        } catch (IOException exception) {
+            ingest.reject("Reading the request failed: " + exception.getMessage());
+        }
+        return Response.ok(ingest.finish()).build();
+    }
+
+    @GET
+    @Path("export")
+    @Produces(NDJSON)
+    @RolesAllowed({"RestFullGroup", "Admin"})
+    public Response export() {
+        // Rows are written while they are read, so the heap holds one chunk however big the table is
+        StreamingOutput stream = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try {
+                // Runs after this method returns, so each chunk is read outside any transaction
+                sliderFacade.forEach(EXPORT_CHUNK_SIZE, slider -> {
+                    try {
+                        writeNdjson(writer, slider);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            } catch (EJBException exception) {
+                if (exception.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) exception.getCause()).getCause();  // The client went away
+                }
+                throw exception;
+            }
+            writer.flush();
+        };
+        return Response.ok(stream).build();
+    }
+
+    @GET
+    @Path("page")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @RolesAllowed({"RestFullGroup", "Admin"})
+    public Response findPage(@QueryParam("after") Long after, @QueryParam("limit") @DefaultValue("100") int limit,
+            @Context UriInfo uriInfo) {
+        if (limit < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be at least 1.").build();
+        }
+        int size = Math.min(limit, MAX_PAGE_SIZE);
+        EntityTag tag = collectionTag("page-" + after + "-" + size);
+        Date lastModified = lastModified();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, tag);
+        if (notModified != null) {
+            return notModified.cacheControl(REVALIDATE).build();
+        }
+        // Seeks the id index, so every page costs the same however deep it is
+        List<Slider> sliders = sliderFacade.findAfter(after, size);
+        Response.ResponseBuilder page = Response.ok(sliders).tag(tag).lastModified(lastModified).cacheControl(REVALIDATE);
+        if (sliders.size() == size) {
+            URI next = uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", sliders.get(sliders.size() - 1).getId())
+                    .replaceQueryParam("limit", size)
+                    .build();
+            page.link(next, "next");
+        }
+        return page.build();
     }
 
     /*@GET
     @Path("count")
     @Produces(MediaType.TEXT_PLAIN)
     public Response countREST() {
-        return Response.ok(String.valueOf(super.count())).build();
+        return Response.ok(String.valueOf(sliderFacade.count())).build();
     }*/
     
     @GET
@@ -117,8 +407,8 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     @Produces(MediaType.TEXT_PLAIN)
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response countSliders() {
-        // Return the count of Slider entities in the database
-        return Response.ok(String.valueOf(super.count())).build();
+        // Return the maintained count of Slider entities; no COUNT(*) runs here
+        return Response.ok(String.valueOf(sliderCount.getCount())).build();
     }
 
     @POST
@@ -128,17 +418,26 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     public Response createOrUpdateSlider(Slider slider, @Context UriInfo uriInfo) {
         if (slider.getId() == null) {
             // ID is null, so create a new Slider
-            super.create(slider);
+            sliderFacade.create(slider);
+            em.flush();
+            afterCommit(() -> {
+                sliderGame.sliderSaved(slider);
+                sliderCount.sliderCreated();
+            });
             URI location = uriInfo.getAbsolutePathBuilder().path(slider.getId().toString()).build();
-            return Response.status(Response.Status.CREATED).location(location).entity(slider).build();
+            return Response.status(Response.Status.CREATED).location(location).entity(slider).tag(tagOf(slider)).build();
         } else {
             // ID is provided, so we need to check if it exists
-            Slider existingSlider = super.find(slider.getId());
+            Slider existingSlider = sliderFacade.find(slider.getId());
             if (existingSlider != null) {
-                // ID exists, update the existing Slider
+                // ID exists, update the existing Slider unless the client holds an older version
+                Response.ResponseBuilder failed = ifMatchFailed(existingSlider);
+                if (failed != null) {
+                    return failed.build();
+                }
+                catchUp(existingSlider);
                 existingSlider.updateWithNonNullValues(slider); // Assuming you have this method in Slider class
-                super.edit(existingSlider);
-                return Response.ok(existingSlider).build();
+                return saveEdit(existingSlider, slider);
             } else {
                 // ID does not exist, return 400 Bad Request
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -155,7 +454,7 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
     @RolesAllowed({"RestFullGroup", "Admin"})
     public Response updateSlider(@PathParam("id") Long id, Slider newSlider) {
         // Step 1: Check if the Slider with the given ID exists
-        Slider existingSlider = super.find(id);
+        Slider existingSlider = sliderFacade.find(id);
         if (existingSlider == null) {
             return Response.status(Response.Status.BAD_REQUEST)
                            .entity("Slider with ID " + id + " does not exist.")
@@ -169,16 +468,18 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
                            .build();
         }
 
-        // Step 3: Update the existing Slider with new values from the request body using updateWithNewValues
-        existingSlider.updateWithNonNullValues(newSlider);
+        // Step 3: Refuse the update if the client's If-Match names an older version
+        Response.ResponseBuilder failed = ifMatchFailed(existingSlider);
+        if (failed != null) {
+            return failed.build();
+        }
 
-        // Step 4: Save the updated Slider back to the database
-        super.edit(existingSlider);
+        // Step 4: Update the live state of the Slider with new values from the request body using updateWithNewValues
+        catchUp(existingSlider);
+        existingSlider.updateWithNonNullValues(newSlider);
 
-        // Step 5: Return a success response
-        return Response.status(Response.Status.OK)
-                       .entity(existingSlider)
-                       .build();
+        // Step 5: Save the updated Slider back to the database and return it
+        return saveEdit(existingSlider, newSlider);
     }
 
 
@@ -196,14 +497,20 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
         }
 
         // Step 2: Check if the Slider with the given ID exists
-        Slider existingSlider = super.find(id);
+        Slider existingSlider = sliderFacade.find(id);
         if (existingSlider == null) {
             return Response.status(Response.Status.NOT_FOUND)
                            .entity("Slider with ID " + id + " does not exist.")
                            .build();
         }
 
-        // Step 3: Replace the existing Slider's attributes with new values or set default values
+        // Step 3: Refuse the replacement if the client's If-Match names an older version
+        Response.ResponseBuilder failed = ifMatchFailed(existingSlider);
+        if (failed != null) {
+            return failed.build();
+        }
+
+        // Step 4: Replace the existing Slider's attributes with new values or set default values
         existingSlider.setSize(newSlider.getSize() != null ? newSlider.getSize() : DEFAULT_SIZE);
         existingSlider.setX(newSlider.getX() != null ? newSlider.getX() : DEFAULT_X);
         existingSlider.setY(newSlider.getY() != null ? newSlider.getY() : DEFAULT_Y);
@@ -212,11 +519,8 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
         existingSlider.setDirChangeCount(newSlider.getDirChangeCount() != null ? newSlider.getDirChangeCount() : DEFAULT_DIR_CHANGE);
         existingSlider.setMvtDirection(newSlider.getMvtDirection() != null ? newSlider.getMvtDirection() : DEFAULT_DIRECTION);
 
-        // Step 4: Persist the changes by updating the entity in the database
-        super.edit(existingSlider);
-
-        // Step 5: Return a successful response with the updated entity
-        return Response.ok(existingSlider).build();
+        // Step 5: Persist the changes and return the updated entity
+        return saveEdit(existingSlider, null);
     }
 
     @PUT
@@ -230,4 +534,119 @@ public class SliderFacadeREST extends AbstractFacade<Slider> {
                        .build();
     }
 
+    /**
+     * Writes an edit now so the version check runs inside this method, then
+     * passes it to the game once committed and tags the response with its
+     * new version. Losing a race with another writer gives 409 Conflict.
+     *
+     * @param slider the edited row
+     * @param edits the fields the request set, or null if it replaced every field
+     */
+    private Response saveEdit(Slider slider, Slider edits) {
+        try {
+            sliderFacade.edit(slider);
+            em.flush();
+        } catch (OptimisticLockException exception) {
+            return Response.status(Response.Status.CONFLICT)
+                           .entity("Slider with ID " + slider.getId() + " was changed by someone else.")
+                           .build();
+        }
+        afterCommit(() -> {
+            if (edits == null) {
+                sliderGame.sliderSaved(slider);
+            } else {
+                sliderGame.sliderEdited(slider, edits);
+            }
+        });
+        return Response.ok(slider).tag(tagOf(slider)).build();
+    }
+
+    /**
+     * Brings a row read from the database up to the game's live state. The
+     * row's motion can be a flush behind the game, and an edit must not
+     * write that older motion back.
+     */
+    private void catchUp(Slider row) {
+        Slider live = sliderGame.getLiveSlider(row.getId());
+        if (live != null) {
+            row.updateWithNonNullValues(live);
+        }
+    }
+
+    /**
+     * Runs an action once the transaction commits, and not at all if it rolls
+     * back. Writes reach the game and the slider count this way, so a
+     * rollback never leaves either ahead of the database, and the change
+     * counter is only bumped once the new rows can be read.
+     */
+    private void afterCommit(Runnable action) {
+        AfterCommit.run(transactions, action);
+    }
+
+    /**
+     * Writes one slider as a line of JSON. Every field is a number, so
+     * nothing needs escaping.
+     */
+    private static void writeNdjson(Writer writer, Slider slider) throws IOException {
+        writer.write("{\"id\":" + slider.getId()
+                + ",\"size\":" + slider.getSize()
+                + ",\"x\":" + slider.getX()
+                + ",\"y\":" + slider.getY()
+                + ",\"maxTravel\":" + slider.getMaxTravel()
+                + ",\"currentTravel\":" + slider.getCurrentTravel()
+                + ",\"mvtDirection\":" + slider.getMvtDirection()
+                + ",\"dirChangeCount\":" + slider.getDirChangeCount()
+                + ",\"version\":" + slider.getVersion()
+                + "}\n");
+    }
+
+    private SliderBulkIngest newIngest() {
+        return new SliderBulkIngest(sliderFacade, sliderGame, sliderCount, validator, BULK_BATCH_SIZE);
+    }
+
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setNoCache(true);
+        cacheControl.setNoTransform(false);  // On by default; the header stays "private, no-cache"
+        return cacheControl;
+    }
+
+    private static EntityTag tagOf(Slider slider) {
+        return new EntityTag(versionOf(slider) + "." + slider.getCurrentTravel() + "." + slider.getMvtDirection()
+                + "." + slider.getMaxTravel() + "." + slider.getDirChangeCount());
+    }
+
+    private static String versionOf(Slider slider) {
+        return slider.getId() + "-" + (slider.getVersion() == null ? 0 : slider.getVersion());
+    }
+
+    /**
+     * @return a 412 response if If-Match names none of the slider's tags,
+     *         comparing the id and version only; null to go ahead
+     */
+    private Response.ResponseBuilder ifMatchFailed(Slider existing) {
+        String ifMatch = headers.getHeaderString(HttpHeaders.IF_MATCH);
+        if (ifMatch == null) {
+            return null;
+        }
+        String version = "\"" + versionOf(existing);
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            // Weak tags never match, as with any If-Match
+            if (tag.equals("*") || tag.equals(version + "\"") || tag.startsWith(version + ".")) {
+                return null;
+            }
+        }
+        return Response.status(Response.Status.PRECONDITION_FAILED);
+    }
+
+    private EntityTag collectionTag(String scope) {
+        return new EntityTag(scope + "-" + sliderGame.getChangeCounter().getTag());
+    }
+
+    private Date lastModified() {
+        // HTTP dates only have whole seconds, so the ETag is what clients should revalidate with
+        return new Date(sliderGame.getChangeCounter().getLastModified());
+    }
 }
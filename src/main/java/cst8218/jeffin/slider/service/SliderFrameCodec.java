@@ -0,0 +1,175 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderFrame;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary wire format of the live slider WebSocket.
+ *
+ * Every message starts with a type byte and the tick as a varint. A DELTA
+ * then holds the sliders that moved as (id, currentTravel, mvtDirection,
+ * maxTravel) tuples, the sliders that were created or edited as full
+ * (id, size, x, y, maxTravel, currentTravel, mvtDirection) tuples, and the
+ * ids of deleted sliders, each list preceded by its length. A KEYFRAME holds
+ * the full tuples of every slider and replaces whatever the reader had.
+ *
+ * Ids and lengths are unsigned varints (7 bits per byte, low bits first);
+ * the other values are zigzag-encoded first so small negative numbers stay
+ * short too. A moving slider typically costs 5 or 6 bytes.
+ *
+ * @author leoje
+ */
+public final class SliderFrameCodec {
+
+    public static final byte DELTA = 0;
+    public static final byte KEYFRAME = 1;
+
+    private SliderFrameCodec() {
+    }
+
+    /**
+     * @param frame the changes of one tick
+     * @return the frame as a DELTA message
+     */
+    public static byte[] encodeDelta(SliderFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + frame.getMovedCount() * 6);
+        out.write(DELTA);
+        writeVarLong(out, frame.getTick());
+        writeVarLong(out, frame.getMovedCount());
+        for (int i = 0; i < frame.getMovedCount(); i++) {
+            writeVarLong(out, frame.getId(i));
+            writeSigned(out, frame.getCurrentTravel(i));
+            writeSigned(out, frame.getMvtDirection(i));
+            writeSigned(out, frame.getMaxTravel(i));
+        }
+        writeSliders(out, frame.getUpdated());
+        writeVarLong(out, frame.getRemoved().size());
+        for (Long id : frame.getRemoved()) {
+            writeVarLong(out, id);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param tick the tick the sliders are at
+     * @param sliders every slider in the game
+     * @return the sliders as a KEYFRAME message
+     */
+    public static byte[] encodeKeyframe(long tick, List<Slider> sliders) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sliders.size() * 12);
+        out.write(KEYFRAME);
+        writeVarLong(out, tick);
+        writeSliders(out, sliders);
+        return out.toByteArray();
+    }
+
+    /**
+     * Applies a message to a reader's copy of the sliders, the way a client
+     * would. Fields that are not on the wire are left unset.
+     *
+     * @param message a DELTA or KEYFRAME message
+     * @param sliders the reader's sliders by id, updated in place
+     * @return the tick of the message
+     */
+    public static long decode(byte[] message, Map<Long, Slider> sliders) {
+        Reader in = new Reader(message);
+        byte type = message[in.position++];
+        long tick = in.readVarLong();
+        if (type == KEYFRAME) {
+            sliders.clear();
+            readSliders(in, sliders);
+            return tick;
+        }
+        long moved = in.readVarLong();
+        for (long i = 0; i < moved; i++) {
+            Slider slider = sliders.get(in.readVarLong());
+            int currentTravel = in.readSigned();
+            int mvtDirection = in.readSigned();
+            int maxTravel = in.readSigned();
+            if (slider != null) {
+                slider.setCurrentTravel(currentTravel);
+                slider.setMvtDirection(mvtDirection);
+                slider.setMaxTravel(maxTravel);
+            }
+        }
+        readSliders(in, sliders);
+        long removed = in.readVarLong();
+        for (long i = 0; i < removed; i++) {
+            sliders.remove(in.readVarLong());
+        }
+        return tick;
+    }
+
+    private static void writeSliders(ByteArrayOutputStream out, List<Slider> sliders) {
+        writeVarLong(out, sliders.size());
+        for (Slider slider : sliders) {
+            writeVarLong(out, slider.getId());
+            writeSigned(out, slider.getSize());
+            writeSigned(out, slider.getX());
+            writeSigned(out, slider.getY());
+            writeSigned(out, slider.getMaxTravel());
+            writeSigned(out, slider.getCurrentTravel());
+            writeSigned(out, slider.getMvtDirection());
+        }
+    }
+
+    private static void readSliders(Reader in, Map<Long, Slider> sliders) {
+        long count = in.readVarLong();
+        for (long i = 0; i < count; i++) {
+            Slider slider = new Slider();
+            slider.setId(in.readVarLong());
+            slider.setSize(in.readSigned());
+            slider.setX(in.readSigned());
+            slider.setY(in.readSigned());
+            slider.setMaxTravel(in.readSigned());
+            slider.setCurrentTravel(in.readSigned());
+            slider.setMvtDirection(in.readSigned());
+            sliders.put(slider.getId(), slider);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeSigned(ByteArrayOutputStream out, int value) {
+        writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads varints from a message.
+     */
+    private static class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        int readSigned() {
+            int zigzag = (int) readVarLong();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+}
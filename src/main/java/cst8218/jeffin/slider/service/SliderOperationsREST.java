@@ -0,0 +1,218 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.ejb.SliderFacade;
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderGame;
+import jakarta.annotation.Resource;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.json.Json;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based operations on many sliders at once.
+ *
+ * Each operation is one JPQL UPDATE, so the database changes every matching
+ * row in a single statement instead of a client looping over PUT. The bounds
+ * Bean Validation puts on Slider are applied in the statement itself with
+ * CASE expressions, and every changed row gets a new version so ETags and
+ * If-Match see the change. A bulk UPDATE bypasses the entities, so the
+ * matching ids are read first, locked until the commit, and the UPDATE and
+ * the reload both go by those ids, so they always cover the same rows. The
+ * game's motion is ahead of the database, so once committed the game only
+ * takes the fields an operation changed, and reset picks sliders by their
+ * live maxTravel.
+ *
+ * @author leoje
+ */
+@Stateless
+@Path("slider/ops")
+@RolesAllowed({"RestFullGroup", "Admin"})
+public class SliderOperationsREST {
+
+    private static final int CHUNK_SIZE = 1000;  // Ids per IN list, and rows reloaded before the persistence context is cleared
+
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    @EJB
+    private SliderGame sliderGame;
+
+    @EJB
+    private SliderFacade sliderFacade;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    /**
+     * Moves every slider inside a region by (dx, dy), keeping it on the board.
+     */
+    @POST
+    @Path("translate")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response translate(@QueryParam("dx") @DefaultValue("0") int dx, @QueryParam("dy") @DefaultValue("0") int dy,
+            @QueryParam("minX") @DefaultValue("0") int minX, @QueryParam("maxX") @DefaultValue("" + Slider.X_LIMIT) int maxX,
+            @QueryParam("minY") @DefaultValue("0") int minY, @QueryParam("maxY") @DefaultValue("" + Slider.Y_LIMIT) int maxY) {
+        Map<String, Object> set = new HashMap<>();
+        set.put("dx", dx);
+        set.put("dy", dy);
+        int updated = run("s.x = " + clamp("s.x + :dx", 0, Slider.X_LIMIT)
+                + ", s.y = " + clamp("s.y + :dy", 0, Slider.Y_LIMIT), set,
+                "s.x >= :minX AND s.x <= :maxX AND s.y >= :minY AND s.y <= :maxY", region(minX, maxX, minY, maxY),
+                "x", "y");
+        return result("translate", updated);
+    }
+
+    /**
+     * Scales the size of every slider inside a region by percent / 100,
+     * keeping it within 1 and SIZE_LIMIT.
+     */
+    @POST
+    @Path("resize")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response resize(@QueryParam("percent") @DefaultValue("100") int percent,
+            @QueryParam("minX") @DefaultValue("0") int minX, @QueryParam("maxX") @DefaultValue("" + Slider.X_LIMIT) int maxX,
+            @QueryParam("minY") @DefaultValue("0") int minY, @QueryParam("maxY") @DefaultValue("" + Slider.Y_LIMIT) int maxY) {
+        if (percent < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("percent must be at least 1.").build();
+        }
+        Map<String, Object> set = new HashMap<>();
+        set.put("percent", percent);
+        int updated = run("s.size = " + clamp("s.size * :percent / 100", 1, Slider.SIZE_LIMIT), set,
+                "s.x >= :minX AND s.x <= :maxX AND s.y >= :minY AND s.y <= :maxY", region(minX, maxX, minY, maxY),
+                "size");
+        return result("resize", updated);
+    }
+
+    /**
+     * Puts every slider whose maxTravel is below a bound back at the start of
+     * its travel.
+     */
+    @POST
+    @Path("reset")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reset(@QueryParam("maxTravelBelow") @DefaultValue("" + (Slider.MAX_TRAVEL_LIMIT + 1)) int maxTravelBelow) {
+        // The game decays maxTravel, so the stored value may be behind; go by the live one
+        List<Long> ids = new ArrayList<>();
+        for (Slider live : sliderGame.getLiveSliders()) {
+            if (live.getMaxTravel() < maxTravelBelow) {
+                ids.add(live.getId());
+            }
+        }
+        int updated = update("s.currentTravel = 0, s.mvtDirection = 1, s.dirChangeCount = 0", new HashMap<>(),
+                ids, "currentTravel", "mvtDirection", "dirChangeCount");
+        return result("reset", updated);
+    }
+
+    /**
+     * Locks the rows matching where, then updates them.
+     *
+     * @param fields the Slider fields the assignments change
+     * @return the number of rows updated
+     */
+    private int run(String assignments, Map<String, Object> setParameters, String where,
+            Map<String, Object> whereParameters, String... fields) {
+        // The where clause may test the very columns being changed, so find the rows first,
+        // and keep other writers from moving rows into or out of the set until the commit
+        TypedQuery<Long> select = em.createQuery("SELECT s.id FROM Slider s WHERE " + where, Long.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        for (Map.Entry<String, Object> parameter : whereParameters.entrySet()) {
+            select.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        return update(assignments, setParameters, select.getResultList(), fields);
+    }
+
+    /**
+     * Runs the UPDATE over the given ids, then hands the changed fields of
+     * those rows to the game once the transaction commits.
+     *
+     * @param fields the Slider fields the assignments change
+     * @return the number of rows updated
+     */
+    private int update(String assignments, Map<String, Object> setParameters, List<Long> ids, String... fields) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            Query update = em.createQuery("UPDATE Slider s SET " + assignments
+                    + ", s.version = COALESCE(s.version, 0) + 1 WHERE s.id IN :ids");
+            for (Map.Entry<String, Object> parameter : setParameters.entrySet()) {
+                update.setParameter(parameter.getKey(), parameter.getValue());
+            }
+            updated += update.setParameter("ids", ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))
+                    .executeUpdate();
+        }
+
+        // Reload the same ids, so the game gets exactly the rows that were counted
+        Map<Slider, Slider> edits = new LinkedHashMap<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            for (Slider slider : sliderFacade.findByIds(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))) {
+                edits.put(slider, editsOf(slider, Arrays.asList(fields)));
+            }
+            em.clear();
+        }
+        AfterCommit.run(transactions, () -> {
+            for (Map.Entry<Slider, Slider> edit : edits.entrySet()) {
+                sliderGame.sliderEdited(edit.getKey(), edit.getValue());
+            }
+        });
+        return updated;
+    }
+
+    /**
+     * @return a Slider holding only the given fields of row, the rest null
+     */
+    private static Slider editsOf(Slider row, List<String> fields) {
+        Slider edits = new Slider();
+        edits.setSize(fields.contains("size") ? row.getSize() : null);
+        edits.setX(fields.contains("x") ? row.getX() : null);
+        edits.setY(fields.contains("y") ? row.getY() : null);
+        edits.setMaxTravel(fields.contains("maxTravel") ? row.getMaxTravel() : null);
+        edits.setCurrentTravel(fields.contains("currentTravel") ? row.getCurrentTravel() : null);
+        edits.setMvtDirection(fields.contains("mvtDirection") ? row.getMvtDirection() : null);
+        edits.setDirChangeCount(fields.contains("dirChangeCount") ? row.getDirChangeCount() : null);
+        return edits;
+    }
+
+    private static Map<String, Object> region(int minX, int maxX, int minY, int maxY) {
+        Map<String, Object> region = new HashMap<>();
+        region.put("minX", minX);
+        region.put("maxX", maxX);
+        region.put("minY", minY);
+        region.put("maxY", maxY);
+        return region;
+    }
+
+    private static String clamp(String expression, int min, int max) {
+        return "CASE WHEN " + expression + " < " + min + " THEN " + min
+                + " WHEN " + expression + " > " + max + " THEN " + max
+                + " ELSE " + expression + " END";
+    }
+
+    private static Response result(String operation, int updated) {
+        return Response.ok(Json.createObjectBuilder()
+                .add("operation", operation)
+                .add("updated", updated)
+                .build()).build();
+    }
+}
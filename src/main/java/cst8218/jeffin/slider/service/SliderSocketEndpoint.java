@@ -0,0 +1,51 @@
+package cst8218.jeffin.slider.service;
+
+import jakarta.ejb.EJB;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerEndpoint;
+
+/**
+ * Live slider positions as binary WebSocket messages.
+ *
+ * The server sends {@link SliderFrameCodec} messages: a keyframe first, then
+ * one delta per tick. The client answers with the tick of the last message it
+ * applied, as text; a client that stops answering stops receiving deltas and
+ * gets a keyframe once it catches up.
+ *
+ * @author leoje
+ */
+@ServerEndpoint("/live/sliders")
+public class SliderSocketEndpoint {
+
+    @EJB
+    private SliderSocketHub hub;
+
+    @OnOpen
+    public void open(Session session) {
+        hub.join(session);
+    }
+
+    @OnMessage
+    public void acknowledge(Session session, String message) {
+        try {
+            hub.acknowledge(session, Long.parseLong(message.trim()));
+        } catch (NumberFormatException exception) {
+            // Not an acknowledgement; ignore it
+        }
+    }
+
+    @OnClose
+    public void close(Session session, CloseReason reason) {
+        hub.leave(session);
+    }
+
+    @OnError
+    public void error(Session session, Throwable error) {
+        hub.leave(session);
+    }
+}
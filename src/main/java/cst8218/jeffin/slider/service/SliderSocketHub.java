@@ -0,0 +1,271 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.game.SliderFrame;
+import cst8218.jeffin.slider.game.SliderFrameListener;
+import cst8218.jeffin.slider.game.SliderGame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feeds the game's frames to the binary WebSocket viewers.
+ *
+ * Each frame is encoded once with {@link SliderFrameCodec} into a ring of
+ * recent DELTA messages, and the same bytes are sent to every viewer.
+ * Viewers acknowledge the ticks they have applied; one that is more than
+ * WINDOW ticks unacknowledged gets nothing until it catches up. It then
+ * continues from the ring if the ring still holds every frame after the
+ * last one it was sent, and from a KEYFRAME followed by the newer deltas
+ * otherwise. Keyframes are shared too, and rebuilt from the game at most
+ * once every KEYFRAME_INTERVAL frames. All sending starts on the tick
+ * thread; acknowledgements only update a counter. A session may only have
+ * one asynchronous send outstanding, so each viewer queues its messages
+ * and starts the next one when the previous send completes. A viewer whose
+ * queue grows past MAX_PENDING messages cannot keep up even with the window
+ * and is disconnected.
+ *
+ * @author leoje
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SliderSocketHub implements SliderFrameListener {
+
+    // Flow control settings, overridable with system properties
+    private static final int WINDOW = Integer.getInteger("slider.ws.window", 30);
+    private static final int KEYFRAME_INTERVAL = Integer.getInteger("slider.ws.keyframeInterval", 30);
+    private static final int RING_SIZE = Math.max(2 * KEYFRAME_INTERVAL, 64);
+    // Enough for a keyframe and a full ring of catch-up deltas, twice over
+    private static final int MAX_PENDING = Integer.getInteger("slider.ws.maxPending", 2 * (RING_SIZE + 1));
+
+    /**
+     * What the hub knows about one connected viewer.
+     */
+    private static class Viewer {
+        private final Session session;
+        private volatile long ackedTick = -1;  // Last tick the viewer applied
+        private volatile long sentTick = -1;  // Last tick sent to it, -1 before its first keyframe
+        private final Deque<byte[]> pending = new ArrayDeque<>();  // Waiting for the send in progress
+        private boolean sending;  // Guarded by this, like pending
+
+        Viewer(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * @return false if the queue is full, in which case nothing more is sent
+         */
+        boolean send(byte[] message) {
+            synchronized (this) {
+                if (sending) {
+                    if (pending.size() >= MAX_PENDING) {
+                        pending.clear();
+                        return false;
+                    }
+                    pending.add(message);
+                    return true;
+                }
+                sending = true;
+            }
+            write(message);
+            return true;
+        }
+
+        private void write(byte[] message) {
+            // Each send gets its own view of the shared bytes
+            session.getAsyncRemote().sendBinary(ByteBuffer.wrap(message), result -> {
+                byte[] next;
+                synchronized (this) {
+                    if (!result.isOK()) {
+                        // The session is broken; the tick thread drops it once it is closed
+                        pending.clear();
+                    }
+                    next = pending.poll();
+                    sending = next != null;
+                }
+                if (next != null) {
+                    write(next);
+                }
+            });
+        }
+    }
+
+    @EJB
+    private SliderGame sliderGame;
+
+    private final Map<String, Viewer> viewers = new ConcurrentHashMap<>();
+
+    // Recent deltas; frame number f is at f % RING_SIZE. Tick thread only.
+    private final byte[][] ring = new byte[RING_SIZE][];
+    private final long[] ringPrevTick = new long[RING_SIZE];  // Tick of the frame before each delta
+    private long frameCount;
+    private long lastTick = -1;
+    private byte[] keyframe;
+    private long keyframeTick = -1;
+    private long keyframeFrame;  // frameCount when the keyframe was built
+
+    // Metrics
+    private volatile long bytesSent;
+    private volatile long keyframesSent;
+    private volatile long keyframesBuilt;
+    private volatile int behind;
+    private volatile long dropped;
+
+    @PostConstruct
+    public void init() {
+        sliderGame.addFrameListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sliderGame.removeFrameListener(this);
+        viewers.clear();
+    }
+
+    /**
+     * @param session a newly opened viewer session; it gets a keyframe on the next tick
+     */
+    public void join(Session session) {
+        viewers.put(session.getId(), new Viewer(session));
+    }
+
+    /**
+     * @param session a closed viewer session
+     */
+    public void leave(Session session) {
+        viewers.remove(session.getId());
+    }
+
+    /**
+     * Records that a viewer has applied every message up to a tick.
+     *
+     * @param session the viewer
+     * @param tick the tick of the last message it applied
+     */
+    public void acknowledge(Session session, long tick) {
+        Viewer viewer = viewers.get(session.getId());
+        if (viewer == null) {
+            return;
+        }
+        // Nothing past what was sent can have been applied; acking ahead would open the window for good
+        long applied = Math.min(tick, viewer.sentTick);
+        if (applied > viewer.ackedTick) {
+            viewer.ackedTick = applied;
+        }
+    }
+
+    @Override
+    public void frameReady(SliderFrame frame) {
+        long previous = lastTick;
+        lastTick = frame.getTick();
+        if (viewers.isEmpty()) {
+            // Nobody to send to; whoever joins next starts from a fresh keyframe
+            keyframe = null;
+            return;
+        }
+        int slot = (int) (frameCount % RING_SIZE);
+        ring[slot] = SliderFrameCodec.encodeDelta(frame);
+        ringPrevTick[slot] = previous;
+        frameCount++;
+
+        int lagging = 0;
+        for (Viewer viewer : viewers.values()) {
+            if (!viewer.session.isOpen()) {
+                viewers.remove(viewer.session.getId());
+                continue;
+            }
+            if (viewer.sentTick >= 0 && viewer.sentTick - viewer.ackedTick > WINDOW) {
+                lagging++;
+                continue;
+            }
+            long next = viewer.sentTick < 0 ? -1 : frameAfter(viewer.sentTick);
+            if (next < 0) {
+                // New, or too far behind for the ring: start over from a keyframe
+                sendKeyframe(viewer);
+                next = keyframeFrame;
+            }
+            for (long f = next; f < frameCount && viewers.containsKey(viewer.session.getId()); f++) {
+                send(viewer, ring[(int) (f % RING_SIZE)]);
+            }
+            viewer.sentTick = lastTick;
+        }
+        behind = lagging;
+    }
+
+    /**
+     * @return viewer count, viewers waiting on acknowledgements and bytes sent
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("viewers", viewers.size());
+        metrics.put("behind", behind);
+        metrics.put("window", WINDOW);
+        metrics.put("maxPending", MAX_PENDING);
+        metrics.put("dropped", dropped);
+        metrics.put("framesEncoded", frameCount);
+        metrics.put("keyframesBuilt", keyframesBuilt);
+        metrics.put("keyframesSent", keyframesSent);
+        metrics.put("bytesSent", bytesSent);
+        return metrics;
+    }
+
+    /**
+     * @return the number of the ring frame that follows the given tick, or -1
+     *         if the ring no longer holds it
+     */
+    private long frameAfter(long tick) {
+        long oldest = Math.max(0, frameCount - RING_SIZE);
+        for (long f = frameCount - 1; f >= oldest; f--) {
+            if (ringPrevTick[(int) (f % RING_SIZE)] == tick) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    private void sendKeyframe(Viewer viewer) {
+        if (keyframe == null || frameCount - keyframeFrame > KEYFRAME_INTERVAL) {
+            // The world already holds this tick's state, so the keyframe needs no deltas after it
+            keyframe = SliderFrameCodec.encodeKeyframe(lastTick, sliderGame.getLiveSliders());
+            keyframeTick = lastTick;
+            keyframeFrame = frameCount;
+            keyframesBuilt++;
+        }
+        send(viewer, keyframe);
+        keyframesSent++;
+        if (viewer.sentTick < 0) {
+            viewer.ackedTick = keyframeTick;
+        }
+    }
+
+    private void send(Viewer viewer, byte[] message) {
+        if (!viewer.send(message)) {
+            drop(viewer);
+            return;
+        }
+        bytesSent += message.length;
+    }
+
+    private void drop(Viewer viewer) {
+        viewers.remove(viewer.session.getId());
+        dropped++;
+        try {
+            viewer.session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too far behind"));
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
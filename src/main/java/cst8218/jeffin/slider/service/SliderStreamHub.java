@@ -0,0 +1,281 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderFrame;
+import cst8218.jeffin.slider.game.SliderFrameListener;
+import cst8218.jeffin.slider.game.SliderGame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans the game's frames out to Server-Sent Events subscribers.
+ *
+ * Each frame is encoded to JSON once and the same event is queued for every
+ * subscriber. Sinks are registered with an {@link SseBroadcaster}, which
+ * tracks them and closes them on shutdown, but events are written
+ * subscriber by subscriber: every subscriber has its own queue of at
+ * most MAX_QUEUED events, drained in order on the managed executor, so the
+ * game's tick thread never waits on a socket. A subscriber whose queue
+ * overflows is too far behind; it is closed and dropped, and can reconnect
+ * for a fresh snapshot.
+ *
+ * @author leoje
+ */
+@Singleton
+@LocalBean
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SliderStreamHub implements SliderFrameListener {
+
+    // How many events a subscriber may lag behind before it is dropped, overridable with a system property
+    private static final int MAX_QUEUED = Integer.getInteger("slider.stream.maxQueued", 8);
+
+    @EJB
+    private SliderGame sliderGame;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final Map<SseEventSink, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private volatile Sse sse;
+    private SseBroadcaster broadcaster;
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        sliderGame.addFrameListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sliderGame.removeFrameListener(this);
+        synchronized (this) {
+            if (broadcaster != null) {
+                broadcaster.close();
+            }
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Adds a subscriber and sends it every slider as the first event.
+     *
+     * @param sink the subscriber's event sink
+     * @param sse the SSE context to build events with
+     */
+    public void subscribe(SseEventSink sink, Sse sse) {
+        Subscriber subscriber;
+        synchronized (this) {
+            if (broadcaster == null) {
+                this.sse = sse;
+                broadcaster = sse.newBroadcaster();
+                broadcaster.onClose(subscribers::remove);
+                broadcaster.onError((closed, error) -> subscribers.remove(closed));
+            }
+            broadcaster.register(sink);
+            // Taken under the same lock frames are queued under: every frame
+            // cut after this copy is queued behind the snapshot, none is missed
+            subscriber = new Subscriber(sink, sliderGame.getLiveSliders());
+            subscribers.put(sink, subscriber);
+        }
+        subscriber.schedule();
+    }
+
+    /**
+     * Encodes the frame once and queues it for every subscriber that keeps up.
+     *
+     * @param frame what changed during the tick
+     */
+    @Override
+    public void frameReady(SliderFrame frame) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        OutboundSseEvent event = sse.newEventBuilder()
+                .name("tick")
+                .id(Long.toString(frame.getTick()))
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, encodeFrame(frame))
+                .build();
+        synchronized (this) {
+            for (Subscriber subscriber : subscribers.values()) {
+                subscriber.offer(event);
+            }
+        }
+        framesSent.incrementAndGet();
+    }
+
+    /**
+     * @return subscriber count, frames sent and slow subscribers dropped
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("maxQueued", MAX_QUEUED);
+        metrics.put("framesSent", framesSent.get());
+        metrics.put("dropped", dropped.get());
+        return metrics;
+    }
+
+    private void drop(SseEventSink sink) {
+        if (subscribers.remove(sink) != null) {
+            dropped.incrementAndGet();
+        }
+        try {
+            sink.close();
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * One subscriber's queue of events, written to its sink by at most one
+     * executor task at a time.
+     */
+    private class Subscriber {
+
+        private final SseEventSink sink;
+        private final BlockingQueue<OutboundSseEvent> queue = new ArrayBlockingQueue<>(MAX_QUEUED);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile List<Slider> snapshot;  // Sent, then cleared, before any queued event
+
+        Subscriber(SseEventSink sink, List<Slider> snapshot) {
+            this.sink = sink;
+            this.snapshot = snapshot;
+        }
+
+        void offer(OutboundSseEvent event) {
+            if (sink.isClosed()) {
+                subscribers.remove(sink);
+            } else if (!queue.offer(event)) {
+                // Too far behind; dropping it keeps one slow client from piling up
+                // frames. Closing may write, so it is left to the executor too
+                executor.execute(() -> drop(sink));
+            } else {
+                schedule();
+            }
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                List<Slider> sliders = snapshot;
+                if (sliders != null) {
+                    snapshot = null;
+                    if (!write(sse.newEventBuilder()
+                            .name("snapshot")
+                            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                            .data(String.class, encodeSnapshot(sliders))
+                            .build())) {
+                        return;
+                    }
+                }
+                OutboundSseEvent event;
+                while ((event = queue.poll()) != null) {
+                    if (!write(event)) {
+                        return;
+                    }
+                }
+                draining.set(false);
+                // An event queued after the last poll but before the flag was
+                // cleared would otherwise wait for the next frame
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private boolean write(OutboundSseEvent event) {
+            try {
+                // Waits for the write, so events reach the client in order
+                sink.send(event).toCompletableFuture().join();
+                return true;
+            } catch (Exception exception) {
+                drop(sink);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * {"sliders":[...]} with every field of every slider.
+     */
+    private static String encodeSnapshot(List<Slider> sliders) {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator json = Json.createGenerator(out)) {
+            json.writeStartObject().writeStartArray("sliders");
+            for (Slider slider : sliders) {
+                writeSlider(json, slider);
+            }
+            json.writeEnd().writeEnd();
+        }
+        return out.toString();
+    }
+
+    /**
+     * {"tick":n,"moved":[...],"updated":[...],"removed":[...]}, where moved
+     * only carries the fields the game changes.
+     */
+    private static String encodeFrame(SliderFrame frame) {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator json = Json.createGenerator(out)) {
+            json.writeStartObject().write("tick", frame.getTick()).writeStartArray("moved");
+            for (int i = 0; i < frame.getMovedCount(); i++) {
+                json.writeStartObject()
+                        .write("id", frame.getId(i))
+                        .write("currentTravel", frame.getCurrentTravel(i))
+                        .write("mvtDirection", frame.getMvtDirection(i))
+                        .write("maxTravel", frame.getMaxTravel(i))
+                        .writeEnd();
+            }
+            json.writeEnd().writeStartArray("updated");
+            for (Slider slider : frame.getUpdated()) {
+                writeSlider(json, slider);
+            }
+            json.writeEnd().writeStartArray("removed");
+            for (Long id : frame.getRemoved()) {
+                json.write(id);
+            }
+            json.writeEnd().writeEnd();
+        }
+        return out.toString();
+    }
+
+    private static void writeSlider(JsonGenerator json, Slider slider) {
+        json.writeStartObject()
+                .write("id", slider.getId())
+                .write("size", slider.getSize())
+                .write("x", slider.getX())
+                .write("y", slider.getY())
+                .write("maxTravel", slider.getMaxTravel())
+                .write("currentTravel", slider.getCurrentTravel())
+                .write("mvtDirection", slider.getMvtDirection())
+                .write("dirChangeCount", slider.getDirChangeCount())
+                .writeEnd();
+    }
+}
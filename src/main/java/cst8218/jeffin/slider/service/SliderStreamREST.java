@@ -0,0 +1,37 @@
+package cst8218.jeffin.slider.service;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Live slider state as Server-Sent Events.
+ *
+ * A subscriber first gets a "snapshot" event with every slider, then one
+ * "tick" event per game tick with the sliders that moved, were edited or
+ * were deleted. The state comes from the running game, never the database.
+ *
+ * @author leoje
+ */
+@Stateless
+@Path("slider/stream")
+@RolesAllowed({"RestFullGroup", "Admin"})
+public class SliderStreamREST {
+
+    @EJB
+    private SliderStreamHub hub;
+
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void subscribe(@Context SseEventSink sink, @Context Sse sse) {
+        // The sink stays open after this returns; the hub writes to it on every tick
+        hub.subscribe(sink, sse);
+    }
+}
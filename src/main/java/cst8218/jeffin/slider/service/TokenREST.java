@@ -0,0 +1,59 @@
+package cst8218.jeffin.slider.service;
+
+import cst8218.jeffin.slider.security.TokenAuthenticationMechanism;
+import cst8218.jeffin.slider.security.TokenService;
+import jakarta.annotation.security.PermitAll;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Exchanges credentials for a bearer token.
+ *
+ * POST with Basic credentials and use the returned token as
+ * "Authorization: Bearer ..." on later calls. Those calls are then
+ * authenticated without a database lookup or PBKDF2. A token cannot be
+ * exchanged for a new one: that would renew it forever, with the groups it
+ * was first issued with.
+ *
+ * @author leoje
+ */
+@Stateless
+@Path("auth/token")
+@PermitAll
+public class TokenREST {
+
+    @Inject
+    private TokenService tokenService;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response issue() {
+        CredentialValidationResult caller = (CredentialValidationResult) servletRequest.getAttribute(TokenAuthenticationMechanism.CALLER);
+        String authorization = servletRequest.getHeader("Authorization");
+        if (caller == null || authorization == null || !authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .header("WWW-Authenticate", "Basic realm=\"ApplicationRealm\"")
+                    .build();
+        }
+        String token = tokenService.issue(caller.getCallerPrincipal().getName(), caller.getCallerGroups());
+        return Response.ok(Json.createObjectBuilder()
+                .add("token", token)
+                .add("tokenType", "Bearer")
+                .add("expiresIn", tokenService.getTtlSeconds())
+                .build())
+                .header("Cache-Control", "no-store")
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package cst8218.jeffin.slider.util;
+
+import jakarta.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counts of the shared (second-level) entity cache.
+ *
+ * JPA has no standard cache statistics, so lookups by id go through
+ * {@link #find(EntityManager, Class, Object)}, which asks the cache whether
+ * it holds the entity before the provider looks it up.
+ *
+ * @author leoje
+ */
+public final class CacheStatistics {
+
+    private static final Map<String, LongAdder[]> COUNTS = new ConcurrentHashMap<>();  // {hits, misses} by entity
+
+    private CacheStatistics() {
+    }
+
+    /**
+     * Finds an entity by id and counts whether the shared cache had it.
+     *
+     * @param em the entity manager to look it up with
+     * @param type the entity class
+     * @param id the primary key
+     * @return the entity, or null if there is none
+     */
+    public static <T> T find(EntityManager em, Class<T> type, Object id) {
+        if (id == null) {
+            return null;
+        }
+        boolean hit = em.getEntityManagerFactory().getCache().contains(type, id);
+        LongAdder[] counts = COUNTS.computeIfAbsent(type.getSimpleName(), name -> new LongAdder[] {new LongAdder(), new LongAdder()});
+        counts[hit ? 0 : 1].increment();
+        return em.find(type, id);
+    }
+
+    /**
+     * @return hits, misses and hit ratio by entity name, ready to be serialized
+     */
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : COUNTS.entrySet()) {
+            long hits = entry.getValue()[0].sum();
+            long misses = entry.getValue()[1].sum();
+            Map<String, Object> entity = new LinkedHashMap<>();
+            entity.put("hits", hits);
+            entity.put("misses", misses);
+            entity.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            metrics.put(entry.getKey(), entity);
+        }
+        return metrics;
+    }
+}
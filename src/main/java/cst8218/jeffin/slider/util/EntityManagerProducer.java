@@ -0,0 +1,39 @@
+package cst8218.jeffin.slider.util;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+
+/**
+ * Produces one EntityManager per request for the JSF pages' JPA controllers.
+ *
+ * Every lookup, list and write made while rendering or submitting one page
+ * shares its persistence context, instead of each creating and closing its
+ * own. It is closed when the request ends, which leaves the page's
+ * entities detached for the next request. Writes have to join the JTA
+ * transaction they run in.
+ *
+ * @author leoje
+ */
+@ApplicationScoped
+public class EntityManagerProducer {
+
+    @PersistenceUnit(unitName = "my_persistence_unit")
+    private EntityManagerFactory emf;
+
+    @Produces
+    @RequestScoped
+    public EntityManager createEntityManager() {
+        return emf.createEntityManager();
+    }
+
+    public void closeEntityManager(@Disposes EntityManager em) {
+        if (em.isOpen()) {
+            em.close();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package cst8218.jeffin.slider.util;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
@@ -23,6 +25,60 @@ public class JsfUtil {
         return items;
     }
 
+    /**
+     * Select items built at most once per request. EL evaluates a getter
+     * like getItemsAvailableSelectOne() several times per render; only the
+     * first one runs the query.
+     *
+     * @param key names the list, unique within the application
+     * @param entities loads the entities, called at most once per request
+     * @param selectOne whether to start with an empty "---" item
+     * @return the select items
+     */
+    public static SelectItem[] getSelectItems(String key, Supplier<? extends List<?>> entities, boolean selectOne) {
+        return memoize(key + (selectOne ? ".selectOne" : ".selectMany"),
+                () -> getSelectItems(memoize(key, entities), selectOne));
+    }
+
+    /**
+     * Computes a value once per request and hands the same value back for the
+     * rest of it. Values live in the FacesContext attributes, which are
+     * dropped when the request ends; outside a JSF request nothing is kept.
+     *
+     * @param key names the value, unique within the application
+     * @param supplier computes the value
+     * @return the value computed for this request
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T memoize(String key, Supplier<T> supplier) {
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (context == null) {
+            return supplier.get();
+        }
+        Map<Object, Object> attributes = context.getAttributes();
+        String attribute = JsfUtil.class.getName() + "." + key;
+        if (attributes.containsKey(attribute)) {
+            return (T) attributes.get(attribute);
+        }
+        T value = supplier.get();
+        attributes.put(attribute, value);
+        return value;
+    }
+
+    /**
+     * Drops every value memoized in this request whose key starts with
+     * prefix, so the next read recomputes it, e.g. after a page change.
+     *
+     * @param prefix the key, or the start of the keys, to forget
+     */
+    public static void forget(String prefix) {
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (context != null) {
+            String attribute = JsfUtil.class.getName() + "." + prefix;
+            context.getAttributes().keySet().removeIf(key -> key instanceof String && ((String) key).startsWith(attribute));
+        }
+    }
+
     public static void addErrorMessage(Exception ex, String defaultMsg) {
         String msg = ex.getLocalizedMessage();
         if (msg != null && msg.length() > 0) {
@@ -0,0 +1,180 @@
+package cst8218.jeffin.slider.util;
+
+import jakarta.faces.model.DataModel;
+import jakarta.faces.model.DataModelEvent;
+import jakarta.faces.model.DataModelListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DataModel that loads one page of rows from the database, and only when
+ * a row is first asked for.
+ *
+ * Pages are read by key rather than by offset: the subclass loads the rows
+ * after a cursor, in its own order, and gives the cursor of a page's last
+ * row, so a deep page costs the same as the first. One row past the page
+ * is loaded to tell whether there is a next one, so no count is needed.
+ * The rows are kept until {@link #refresh()}; call {@link #reset()} when
+ * the order or the filter changes.
+ */
+public abstract class LazyDataModel<T> extends DataModel<T> {
+
+    private final int pageSize;
+    private final List<Object> pageCursors = new ArrayList<>();  // The cursor each visited page starts after, by page number
+    private int page;
+    private List<T> loaded;  // The current page plus one row, or null until a row is asked for
+    private int rowIndex = -1;
+
+    /**
+     * @param pageSize the most rows per page
+     */
+    public LazyDataModel(int pageSize) {
+        this.pageSize = pageSize;
+        pageCursors.add(null);
+    }
+
+    /**
+     * @param cursor what the page starts after, or null for the first page
+     * @param limit the most rows to load
+     * @return the rows, in order
+     */
+    protected abstract List<T> findPage(Object cursor, int limit);
+
+    /**
+     * @param row the last row of a page
+     * @return the cursor the next page starts after
+     */
+    protected abstract Object cursorOf(T row);
+
+    /**
+     * Drops the loaded rows, so they are read again when next asked for.
+     */
+    public void refresh() {
+        loaded = null;
+        rowIndex = -1;
+    }
+
+    /**
+     * Goes back to the first page and drops the loaded rows.
+     */
+    public void reset() {
+        pageCursors.clear();
+        pageCursors.add(null);
+        page = 0;
+        refresh();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageFirstItem() {
+        return page * pageSize;
+    }
+
+    public int getPageLastItem() {
+        return getPageFirstItem() + Math.max(getPage().size(), 1) - 1;
+    }
+
+    public boolean isHasNextPage() {
+        return loadPage().size() > pageSize;
+    }
+
+    public boolean isHasPreviousPage() {
+        return page > 0;
+    }
+
+    public void nextPage() {
+        if (isHasNextPage()) {
+            List<T> current = getPage();
+            // Forget any pages beyond this one, they may have shifted since
+            while (pageCursors.size() > page + 1) {
+                pageCursors.remove(pageCursors.size() - 1);
+            }
+            pageCursors.add(cursorOf(current.get(current.size() - 1)));
+            page++;
+            refresh();
+        }
+    }
+
+    public void previousPage() {
+        if (isHasPreviousPage()) {
+            page--;
+            refresh();
+        }
+    }
+
+    /**
+     * @return the rows on the current page
+     */
+    public List<T> getPage() {
+        List<T> rows = loadPage();
+        return rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+    }
+
+    @Override
+    public boolean isRowAvailable() {
+        return rowIndex >= 0 && rowIndex < getPage().size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return getPage().size();
+    }
+
+    @Override
+    public T getRowData() {
+        if (!isRowAvailable()) {
+            throw new IllegalArgumentException("No row at index " + rowIndex);
+        }
+        return getPage().get(rowIndex);
+    }
+
+    @Override
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    @Override
+    public void setRowIndex(int rowIndex) {
+        if (rowIndex < -1) {
+            throw new IllegalArgumentException("Row index " + rowIndex);
+        }
+        int old = this.rowIndex;
+        this.rowIndex = rowIndex;
+        DataModelListener[] listeners = getDataModelListeners();
+        if (old != rowIndex && listeners.length > 0) {
+            DataModelEvent event = new DataModelEvent(this, rowIndex, isRowAvailable() ? getRowData() : null);
+            for (DataModelListener listener : listeners) {
+                listener.rowSelected(event);
+            }
+        }
+    }
+
+    @Override
+    public Object getWrappedData() {
+        return getPage();
+    }
+
+    /**
+     * Shows the given rows as the current page, in place of what findPage()
+     * would load, until the next {@link #refresh()}.
+     *
+     * @param data a List of rows, or null to load the page again
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setWrappedData(Object data) {
+        refresh();
+        if (data != null) {
+            loaded = new ArrayList<>((List<T>) data);
+        }
+    }
+
+    private List<T> loadPage() {
+        if (loaded == null) {
+            loaded = findPage(pageCursors.get(page), pageSize + 1);
+        }
+        return loaded;
+    }
+}
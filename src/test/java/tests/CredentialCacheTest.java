@@ -0,0 +1,56 @@
+package tests;
+
+import cst8218.jeffin.slider.security.CredentialCache;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CredentialCacheTest {
+
+    private static final Set<String> ADMIN = Collections.singleton("Admin");
+
+    @Test
+    public void testMatchesOnlyTheSamePassword() {
+        CredentialCache cache = new CredentialCache(10, 60000);
+        cache.put("alice", "secret".toCharArray(), ADMIN);
+
+        assertEquals(ADMIN, cache.match("alice", "secret".toCharArray()));
+        assertNull(cache.match("alice", "Secret".toCharArray()));
+        assertNull(cache.match("bob", "secret".toCharArray()));
+
+        cache.invalidate("alice");
+        assertNull(cache.match("alice", "secret".toCharArray()));
+    }
+
+    @Test
+    public void testSkipsLoginLookedUpBeforeAnInvalidation() {
+        CredentialCache cache = new CredentialCache(10, 60000);
+        long generation = cache.generation();
+        cache.invalidate("alice");  // e.g. her password changed while the old one was being verified
+
+        assertFalse(cache.put("alice", "old".toCharArray(), ADMIN, generation));
+        assertNull(cache.match("alice", "old".toCharArray()));
+        assertTrue(cache.put("alice", "new".toCharArray(), ADMIN, cache.generation()));
+        assertEquals(ADMIN, cache.match("alice", "new".toCharArray()));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedAndExpired() {
+        CredentialCache cache = new CredentialCache(2, 60000);
+        cache.put("a", "1".toCharArray(), ADMIN);
+        cache.put("b", "2".toCharArray(), ADMIN);
+        cache.match("a", "1".toCharArray());  // b is now the least recently used
+        cache.put("c", "3".toCharArray(), ADMIN);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.match("a", "1".toCharArray()));
+        assertNull(cache.match("b", "2".toCharArray()));
+        assertNotNull(cache.match("c", "3".toCharArray()));
+
+        CredentialCache expired = new CredentialCache(2, 0);
+        expired.put("a", "1".toCharArray(), ADMIN);
+        assertNull(expired.match("a", "1".toCharArray()));
+        assertEquals(0, expired.size());
+    }
+}
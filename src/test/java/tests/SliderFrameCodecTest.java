@@ -0,0 +1,57 @@
+package tests;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderWorld;
+import cst8218.jeffin.slider.service.SliderFrameCodec;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SliderFrameCodecTest {
+
+    @Test
+    public void testKeyframeAndDeltasFollowTheWorld() {
+        Random random = new Random(7);
+        List<Slider> sliders = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            Slider slider = new Slider();
+            slider.setId(id);
+            slider.setX(random.nextInt(Slider.X_LIMIT));
+            slider.setY(random.nextInt(Slider.Y_LIMIT));
+            slider.setMaxTravel(random.nextInt(Slider.MAX_TRAVEL_LIMIT + 1));
+            slider.setCurrentTravel(random.nextInt(41) - 20);
+            slider.setMvtDirection(random.nextBoolean() ? 1 : -1);
+            sliders.add(slider);
+        }
+        SliderWorld world = new SliderWorld();
+        world.load(sliders);
+        world.clearFrame();
+
+        Map<Long, Slider> viewer = new HashMap<>();
+        assertEquals(0, SliderFrameCodec.decode(SliderFrameCodec.encodeKeyframe(0, world.snapshot()), viewer));
+        for (int tick = 1; tick <= 200; tick++) {
+            world.step();
+            if (tick == 50) {
+                Slider edited = world.get(3L);
+                edited.setX(-12);
+                world.put(edited);
+                world.remove(4L);
+            }
+            assertEquals(tick, SliderFrameCodec.decode(SliderFrameCodec.encodeDelta(world.takeFrame(tick)), viewer));
+        }
+
+        assertEquals(world.size(), viewer.size());
+        for (Slider expected : world.snapshot()) {
+            Slider actual = viewer.get(expected.getId());
+            assertEquals(expected.getX(), actual.getX());
+            assertEquals(expected.getCurrentTravel(), actual.getCurrentTravel());
+            assertEquals(expected.getMvtDirection(), actual.getMvtDirection());
+            assertEquals(expected.getMaxTravel(), actual.getMaxTravel());
+        }
+        assertFalse(viewer.containsKey(4L));
+    }
+}
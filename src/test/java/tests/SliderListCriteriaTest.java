@@ -0,0 +1,46 @@
+package tests;
+
+import cst8218.jeffin.slider.SliderListCriteria;
+import cst8218.jeffin.slider.entity.Slider;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SliderListCriteriaTest {
+
+    @Test
+    public void testSeekPageSortedBySizeWithFilter() {
+        SliderListCriteria criteria = new SliderListCriteria();
+        criteria.sortBy("size");
+        criteria.sortBy("size");
+        criteria.setMinX(10);
+
+        Slider last = new Slider();
+        last.setId(42L);
+        last.setSize(30);
+        Object[] cursor = criteria.cursorOf(last);
+
+        assertEquals("SELECT s FROM Slider s WHERE s.x >= :minX AND s.size <= :afterValue"
+                + " AND (s.size < :afterValue OR s.id < :afterId) ORDER BY s.size DESC, s.id DESC",
+                criteria.jpql(true));
+        Map<String, Object> parameters = criteria.parameters(cursor);
+        assertEquals(10, parameters.get("minX"));
+        assertEquals(30, parameters.get("afterValue"));
+        assertEquals(42L, parameters.get("afterId"));
+        assertEquals(3, parameters.size());
+        assertTrue(criteria.isFiltered());
+        assertNotEquals(criteria.queryName(true), criteria.queryName(false));
+    }
+
+    @Test
+    public void testOnlyListedColumnsCanBeSorted() {
+        SliderListCriteria criteria = new SliderListCriteria();
+        assertEquals("SELECT s FROM Slider s ORDER BY s.id ASC", criteria.jpql(false));
+        try {
+            criteria.sortBy("id; DROP TABLE Slider");
+            fail("Sorted by an unlisted column");
+        } catch (IllegalArgumentException e) {
+            assertEquals("id", criteria.getSortField());
+        }
+    }
+}
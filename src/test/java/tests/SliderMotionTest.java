@@ -0,0 +1,40 @@
+package tests;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderMotion;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SliderMotionTest {
+
+    @Test
+    public void testAdvanceMatchesRepeatedTimeStep() {
+        Random random = new Random(3);
+        for (int run = 0; run < 3000; run++) {
+            Slider slider = new Slider();
+            slider.setMaxTravel(random.nextInt(Slider.MAX_TRAVEL_LIMIT + 1));
+            slider.setCurrentTravel(random.nextInt(301) - 150);
+            slider.setMvtDirection(random.nextInt(5) - 2);
+            slider.setDirChangeCount(random.nextInt(Slider.MAX_DIR_CHANGES + 4) - 2);
+            int ticks = random.nextInt(6000);
+
+            Slider expected = SliderMotion.stateAt(slider, 0);
+            for (int i = 0; i < ticks; i++) {
+                expected.timeStep();
+            }
+            Slider actual = SliderMotion.stateAt(slider, ticks);
+
+            assertEquals(expected.getCurrentTravel(), actual.getCurrentTravel());
+            assertEquals(expected.getMvtDirection(), actual.getMvtDirection());
+            assertEquals(expected.getDirChangeCount(), actual.getDirChangeCount());
+            assertEquals(expected.getMaxTravel(), actual.getMaxTravel());
+        }
+    }
+
+    @Test
+    public void testAdvanceFarAheadSettles() {
+        SliderMotion motion = new SliderMotion(0, 1, 0, Slider.MAX_TRAVEL_LIMIT).advance(1_000_000_000_000L);
+        assertEquals(0, motion.getMaxTravel());
+    }
+}
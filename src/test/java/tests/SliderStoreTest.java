@@ -0,0 +1,95 @@
+package tests;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SliderStoreTest {
+
+    private List<Slider> sliders;
+    private SliderStore store;
+
+    @Before
+    public void setup() {
+        // Include odd states the REST API lets through: travel beyond maxTravel,
+        // directions other than +/-1 and direction counts past the limit
+        Random random = new Random(7);
+        sliders = new ArrayList<>();
+        store = new SliderStore();
+        for (long id = 1; id <= 2000; id++) {
+            Slider slider = new Slider();
+            slider.setId(id);
+            slider.setX(random.nextInt(Slider.X_LIMIT));
+            slider.setY(random.nextInt(Slider.Y_LIMIT));
+            slider.setSize(1 + random.nextInt(Slider.SIZE_LIMIT));
+            slider.setMaxTravel(random.nextInt(Slider.MAX_TRAVEL_LIMIT + 1) - 2);
+            slider.setCurrentTravel(random.nextInt(401) - 200);
+            slider.setMvtDirection(random.nextInt(7) - 3);
+            slider.setDirChangeCount(random.nextInt(Slider.MAX_DIR_CHANGES + 5));
+            sliders.add(slider);
+            store.add(slider);
+        }
+    }
+
+    @Test
+    public void testStepMatchesTimeStep() {
+        for (int tick = 0; tick < 3000; tick++) {
+            for (Slider slider : sliders) {
+                slider.timeStep();
+            }
+            store.step(0, store.size());
+        }
+        for (int i = 0; i < sliders.size(); i++) {
+            Slider expected = sliders.get(i);
+            Slider actual = store.toEntity(i);
+            assertEquals(expected.getCurrentTravel(), actual.getCurrentTravel());
+            assertEquals(expected.getMvtDirection(), actual.getMvtDirection());
+            assertEquals(expected.getDirChangeCount(), actual.getDirChangeCount());
+            assertEquals(expected.getMaxTravel(), actual.getMaxTravel());
+        }
+    }
+
+    @Test
+    public void testEntityRoundTrip() {
+        Slider original = sliders.get(0);
+        Slider copy = store.toEntity(0);
+        assertEquals(original.getId(), copy.getId());
+        assertEquals(original.getSize(), copy.getSize());
+        assertEquals(original.getX(), copy.getX());
+        assertEquals(original.getY(), copy.getY());
+    }
+
+    @Test
+    public void testOnlyMovingSlidersBecomeDirty() {
+        int moving = 0;
+        for (Slider slider : sliders) {
+            if (slider.getMaxTravel() > 0) {
+                moving++;
+            }
+        }
+        assertEquals(moving, (int) store.step(0, store.size()));
+        assertEquals(0, (int) store.step(0, store.size()));  // already dirty
+    }
+
+    @Test
+    public void testStepReportsSettledSliders() {
+        Slider slider = new Slider();
+        slider.setId(1L);
+        slider.setMaxTravel(1);
+        slider.setCurrentTravel(0);
+        slider.setMvtDirection(1);
+        slider.setDirChangeCount(Slider.MAX_DIR_CHANGES);
+        SliderStore single = new SliderStore();
+        single.add(slider);
+
+        long result = single.step(0, 1);
+        assertEquals(1, (int) (result >>> 32));
+        assertEquals(0, single.getSettled(0));
+        assertEquals(0, single.getMaxTravel(0));
+    }
+}
@@ -0,0 +1,271 @@
+package tests;
+
+import cst8218.jeffin.slider.entity.Slider;
+import cst8218.jeffin.slider.game.SliderFrame;
+import cst8218.jeffin.slider.game.SliderWorld;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SliderWorldTest {
+
+    private static final int COUNT = 10000;
+
+    private ExecutorService executor;
+    private List<Slider> sliders;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+        sliders = new ArrayList<>();
+        Random random = new Random(42);
+        for (long id = 1; id <= COUNT; id++) {
+            Slider slider = new Slider();
+            slider.setId(id);
+            slider.setX(random.nextInt(Slider.X_LIMIT));
+            slider.setY(random.nextInt(Slider.Y_LIMIT));
+            slider.setMaxTravel(random.nextInt(Slider.MAX_TRAVEL_LIMIT + 1));
+            slider.setCurrentTravel(random.nextInt(41) - 20);
+            slider.setMvtDirection(random.nextBoolean() ? 1 : -1);
+            slider.setDirChangeCount(random.nextInt(Slider.MAX_DIR_CHANGES));
+            sliders.add(slider);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelStepMatchesSerialStep() {
+        SliderWorld serial = new SliderWorld();
+        serial.load(sliders);
+        SliderWorld parallel = new SliderWorld();
+        parallel.load(sliders);
+        parallel.setParallelism(executor, 7, 100);
+
+        for (int tick = 0; tick < 500; tick++) {
+            serial.step();
+            parallel.step();
+        }
+        for (long id = 1; id <= COUNT; id++) {
+            Slider expected = serial.get(id);
+            Slider actual = parallel.get(id);
+            assertEquals(expected.getCurrentTravel(), actual.getCurrentTravel());
+            assertEquals(expected.getMvtDirection(), actual.getMvtDirection());
+            assertEquals(expected.getDirChangeCount(), actual.getDirChangeCount());
+            assertEquals(expected.getMaxTravel(), actual.getMaxTravel());
+        }
+        assertEquals(serial.getDirtyCount(), parallel.getDirtyCount());
+    }
+
+    @Test
+    public void testInterruptedParallelStepStillCompletesTheTick() {
+        SliderWorld serial = new SliderWorld();
+        serial.load(sliders);
+        SliderWorld parallel = new SliderWorld();
+        parallel.load(sliders);
+        parallel.setParallelism(executor, 7, 100);
+
+        for (int tick = 0; tick < 50; tick++) {
+            serial.step();
+            Thread.currentThread().interrupt();
+            parallel.step();
+            assertTrue(Thread.interrupted());
+        }
+        for (long id = 1; id <= COUNT; id++) {
+            assertEquals(serial.get(id).getCurrentTravel(), parallel.get(id).getCurrentTravel());
+            assertEquals(serial.get(id).getMaxTravel(), parallel.get(id).getMaxTravel());
+        }
+        assertEquals(serial.getDirtyCount(), parallel.getDirtyCount());
+    }
+
+    @Test
+    public void testMultiTickStepMatchesSingleSteps() {
+        SliderWorld single = new SliderWorld();
+        single.load(sliders);
+        SliderWorld batched = new SliderWorld();
+        batched.load(sliders);
+
+        for (int tick = 0; tick < 300; tick++) {
+            single.step();
+        }
+        batched.step(300);
+        for (long id = 1; id <= COUNT; id++) {
+            assertEquals(single.get(id).getCurrentTravel(), batched.get(id).getCurrentTravel());
+            assertEquals(single.get(id).getMaxTravel(), batched.get(id).getMaxTravel());
+        }
+    }
+
+    @Test
+    public void testSettledSlidersLeaveAndRejoinActiveSet() {
+        SliderWorld world = new SliderWorld();
+        world.load(sliders);
+        int dormantAtStart = 0;
+        for (Slider slider : sliders) {
+            if (slider.getMaxTravel() <= 0) {
+                dormantAtStart++;
+            }
+        }
+        assertEquals(COUNT - dormantAtStart, world.getActiveCount());
+
+        world.step(1_000_000);
+        assertEquals(0, world.getActiveCount());
+        assertEquals(COUNT, world.size());
+
+        Slider woken = world.get(5L);
+        woken.setMaxTravel(30);
+        world.put(woken);
+        assertEquals(1, world.getActiveCount());
+        world.step();
+        assertEquals(Integer.valueOf(30), world.get(5L).getMaxTravel());
+        assertNotEquals(woken.getCurrentTravel(), world.get(5L).getCurrentTravel());
+    }
+
+    @Test
+    public void testRemoveKeepsOtherSliders() {
+        SliderWorld world = new SliderWorld();
+        world.load(sliders);
+        world.remove(1L);
+        world.remove((long) COUNT / 2);
+        assertEquals(COUNT - 2, world.size());
+        assertNull(world.get(1L));
+        assertEquals(sliders.get(COUNT - 1).getX(), world.get((long) COUNT).getX());
+    }
+
+    @Test
+    public void testFrameHoldsEverySliderThatChanged() {
+        SliderWorld world = new SliderWorld();
+        world.load(sliders);
+        world.takeFrame(0);
+
+        for (int tick = 1; tick <= 300; tick++) {
+            Map<Long, Slider> before = new HashMap<>();
+            for (Slider slider : world.snapshot()) {
+                before.put(slider.getId(), slider);
+            }
+            world.step(tick % 3 + 1);
+            SliderFrame frame = world.takeFrame(tick);
+
+            Map<Long, Integer> moved = new HashMap<>();
+            for (int i = 0; i < frame.getMovedCount(); i++) {
+                moved.put(frame.getId(i), i);
+            }
+            for (Slider now : world.snapshot()) {
+                Slider old = before.get(now.getId());
+                boolean changed = !old.getCurrentTravel().equals(now.getCurrentTravel())
+                        || !old.getMvtDirection().equals(now.getMvtDirection())
+                        || !old.getMaxTravel().equals(now.getMaxTravel());
+                Integer position = moved.get(now.getId());
+                if (changed) {
+                    assertNotNull(position);
+                }
+                if (position != null) {
+                    assertEquals((int) now.getCurrentTravel(), frame.getCurrentTravel(position));
+                    assertEquals((int) now.getMvtDirection(), frame.getMvtDirection(position));
+                    assertEquals((int) now.getMaxTravel(), frame.getMaxTravel(position));
+                }
+            }
+        }
+
+        Slider edited = world.get(5L);
+        edited.setX(7);
+        world.put(edited);
+        world.remove(6L);
+        SliderFrame frame = world.takeFrame(301);
+        assertEquals(1, frame.getUpdated().size());
+        assertEquals(Integer.valueOf(7), frame.getUpdated().get(0).getX());
+        assertEquals(List.of(6L), frame.getRemoved());
+        assertTrue(world.takeFrame(302).getUpdated().isEmpty());
+    }
+
+    @Test
+    public void testFrameKeepsSettledSliderMovedByWakeUp() {
+        Slider settling = new Slider();
+        settling.setId(1L);
+        settling.setMaxTravel(1);
+        settling.setDirChangeCount(Slider.MAX_DIR_CHANGES);
+        Slider moving = new Slider();
+        moving.setId(2L);
+        moving.setMaxTravel(50);
+        Slider dormant = new Slider();
+        dormant.setId(3L);
+        dormant.setMaxTravel(0);
+        SliderWorld world = new SliderWorld();
+        world.load(List.of(settling, moving, dormant));
+        world.takeFrame(0);
+
+        world.step();
+        dormant.setMaxTravel(30);
+        world.put(dormant);  // Wakes slider 3 into the slot the settled slider 1 sat in
+        SliderFrame frame = world.takeFrame(1);
+
+        Map<Long, Integer> moved = new HashMap<>();
+        for (int i = 0; i < frame.getMovedCount(); i++) {
+            moved.put(frame.getId(i), i);
+        }
+        assertEquals(2, moved.size());
+        assertEquals(0, frame.getMaxTravel(moved.get(1L)));
+        assertTrue(moved.containsKey(2L));
+        assertEquals(1, frame.getUpdated().size());
+        assertEquals(0, world.takeFrame(2).getMovedCount());
+    }
+
+    @Test
+    public void testFrameUpdateMatchesMotionStepsAfterEdit() {
+        Slider slider = new Slider();
+        slider.setId(1L);
+        slider.setMaxTravel(1);
+        slider.setDirChangeCount(Slider.MAX_DIR_CHANGES);
+        SliderWorld world = new SliderWorld();
+        world.load(List.of(slider));
+        world.takeFrame(0);
+
+        slider.setX(9);
+        world.put(slider);
+        world.step();  // Settles the slider after the edit
+        SliderFrame frame = world.takeFrame(1);
+
+        assertEquals(1, frame.getMovedCount());
+        assertEquals(0, frame.getMaxTravel(0));
+        Slider updated = frame.getUpdated().get(0);
+        assertEquals(Integer.valueOf(9), updated.getX());
+        assertEquals(Integer.valueOf(frame.getMaxTravel(0)), updated.getMaxTravel());
+        assertEquals(Integer.valueOf(frame.getCurrentTravel(0)), updated.getCurrentTravel());
+        assertEquals(Integer.valueOf(frame.getMvtDirection(0)), updated.getMvtDirection());
+    }
+
+    @Test
+    public void testApplyKeepsLiveMotion() {
+        SliderWorld world = new SliderWorld();
+        world.load(sliders);
+        world.step(7);
+        Slider before = world.get(3L);
+        int dirty = world.getDirtyCount();
+
+        Slider edits = new Slider();
+        edits.setSize(null);
+        edits.setCurrentTravel(null);
+        edits.setMvtDirection(null);
+        edits.setDirChangeCount(null);
+        edits.setX(11);
+        assertTrue(world.apply(3L, edits));
+
+        Slider after = world.get(3L);
+        assertEquals(Integer.valueOf(11), after.getX());
+        assertEquals(before.getSize(), after.getSize());
+        assertEquals(before.getCurrentTravel(), after.getCurrentTravel());
+        assertEquals(before.getMaxTravel(), after.getMaxTravel());
+        assertEquals(dirty, world.getDirtyCount());
+        assertFalse(world.apply(-1L, edits));
+    }
+}
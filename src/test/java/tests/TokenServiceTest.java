@@ -0,0 +1,40 @@
+package tests;
+
+import cst8218.jeffin.slider.security.TokenService;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TokenServiceTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final Set<String> GROUPS = Collections.singleton("RestFullGroup");
+
+    @Test
+    public void testTokenCarriesCallerAndGroups() {
+        TokenService tokens = new TokenService(KEY, 60000);
+        CredentialValidationResult result = tokens.verify(tokens.issue("alice", GROUPS));
+
+        assertNotNull(result);
+        assertEquals("alice", result.getCallerPrincipal().getName());
+        assertEquals(GROUPS, result.getCallerGroups());
+    }
+
+    @Test
+    public void testRejectsForgedExpiredAndRevokedTokens() {
+        TokenService tokens = new TokenService(KEY, 60000);
+        String token = tokens.issue("alice", GROUPS);
+
+        assertNull(tokens.verify("not a token"));
+        assertNull(tokens.verify(token.substring(0, token.length() - 2) + "AA"));
+        assertNull(new TokenService("another key of thirty-two bytes!".getBytes(), 60000).verify(token));
+        assertNull(new TokenService(KEY, 0).verify(new TokenService(KEY, 0).issue("alice", GROUPS)));
+
+        tokens.revoke("bob");
+        assertNotNull(tokens.verify(token));
+        tokens.revoke("alice");
+        assertNull(tokens.verify(token));
+    }
+}